@@ -0,0 +1,40 @@
+package io.papermc.paper.entity.activation;
+
+import org.bukkit.World;
+
+/**
+ * The categories of entities which have their own activation range, as configured in the {@code entity-activation-range}
+ * section of {@code spigot.yml}.
+ *
+ * @see World#getEntityActivationRange(ActivationCategory)
+ */
+public enum ActivationCategory {
+    /**
+     * Water animals, like fish, squids and dolphins.
+     */
+    WATER,
+    /**
+     * Flying monsters, like ghasts and phantoms.
+     */
+    FLYING_MONSTER,
+    /**
+     * Villagers.
+     */
+    VILLAGER,
+    /**
+     * Monsters which are neither flying monsters nor raiders.
+     */
+    MONSTER,
+    /**
+     * Animals and other creatures, like bats.
+     */
+    ANIMAL,
+    /**
+     * Raiders, like pillagers and witches.
+     */
+    RAIDER,
+    /**
+     * Any other entity.
+     */
+    MISC;
+}
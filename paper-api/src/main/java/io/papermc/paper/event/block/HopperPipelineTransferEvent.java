@@ -0,0 +1,61 @@
+package io.papermc.paper.event.block;
+
+import java.util.List;
+import org.bukkit.block.Block;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.block.BlockEvent;
+import org.bukkit.event.inventory.InventoryMoveItemEvent;
+import org.bukkit.inventory.ItemStack;
+import org.jetbrains.annotations.ApiStatus;
+import org.jspecify.annotations.NullMarked;
+
+/**
+ * Called after a chain of hoppers feeding each other was ticked as one pipeline, with the items moved between the
+ * hoppers of the chain during that tick. The block of the event is the first hopper of the chain.
+ * <p>
+ * Hopper pipelines are only used if enabled in the world configuration. Moves between two hoppers of the same
+ * pipeline are only reported here while nothing listens to {@link InventoryMoveItemEvent}. Otherwise every move calls
+ * its own cancellable {@link InventoryMoveItemEvent} as usual and this event is not called for it. This event is only
+ * called if it has listeners and any item was moved.
+ */
+@NullMarked
+public class HopperPipelineTransferEvent extends BlockEvent {
+
+    private static final HandlerList HANDLER_LIST = new HandlerList();
+
+    private final List<Transfer> transfers;
+
+    @ApiStatus.Internal
+    public HopperPipelineTransferEvent(final Block hopper, final List<Transfer> transfers) {
+        super(hopper);
+        this.transfers = transfers;
+    }
+
+    /**
+     * Gets the items moved between the hoppers of the pipeline, in the order they were moved.
+     *
+     * @return an immutable list of the moves
+     */
+    public List<Transfer> getTransfers() {
+        return this.transfers;
+    }
+
+    @Override
+    public HandlerList getHandlers() {
+        return HANDLER_LIST;
+    }
+
+    public static HandlerList getHandlerList() {
+        return HANDLER_LIST;
+    }
+
+    /**
+     * An item moved from one hopper of the pipeline into another.
+     *
+     * @param source the hopper the item was moved out of
+     * @param destination the hopper the item was moved into
+     * @param item a copy of the moved item
+     */
+    public record Transfer(Block source, Block destination, ItemStack item) {
+    }
+}
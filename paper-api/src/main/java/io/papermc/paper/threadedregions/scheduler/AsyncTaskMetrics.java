@@ -0,0 +1,70 @@
+package io.papermc.paper.threadedregions.scheduler;
+
+import java.time.Duration;
+import org.bukkit.plugin.Plugin;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Metrics of the asynchronous tasks of plugins, covering the tasks of both the {@link org.bukkit.scheduler.BukkitScheduler}
+ * and the {@link AsyncScheduler}.
+ * <p>
+ * Tasks are queued when the plugin owning them already runs the configured maximum amount of asynchronous tasks at
+ * the same time. All values are a snapshot taken without locking, and may therefore be slightly out of date.
+ */
+public interface AsyncTaskMetrics {
+
+    /**
+     * Returns whether asynchronous tasks run on virtual threads instead of platform threads.
+     * @return whether asynchronous tasks run on virtual threads
+     */
+    boolean isUsingVirtualThreads();
+
+    /**
+     * Returns the amount of asynchronous tasks which are currently running.
+     * @return the amount of running tasks
+     */
+    int getRunningTasks();
+
+    /**
+     * Returns the amount of asynchronous tasks of the plugin which are currently running.
+     * @param plugin the plugin
+     * @return the amount of running tasks of the plugin
+     */
+    int getRunningTasks(@NotNull Plugin plugin);
+
+    /**
+     * Returns the amount of asynchronous tasks which are due, but wait for another task of their plugin to finish.
+     * @return the amount of queued tasks
+     */
+    int getQueuedTasks();
+
+    /**
+     * Returns the amount of asynchronous tasks of the plugin which are due, but wait for another task of the plugin to finish.
+     * @param plugin the plugin
+     * @return the amount of queued tasks of the plugin
+     */
+    int getQueuedTasks(@NotNull Plugin plugin);
+
+    /**
+     * Returns the amount of asynchronous tasks which finished running since the server started.
+     * @return the amount of completed tasks
+     */
+    long getCompletedTasks();
+
+    /**
+     * Returns how often a virtual thread was pinned to its carrier thread while blocking, since virtual threads
+     * were enabled. A pinned virtual thread blocks its carrier thread, and with it other virtual threads.
+     * <p>
+     * Pinning is reported by the JVM for every virtual thread, not only for the ones running tasks of plugins.
+     * Always {@code 0} if virtual threads are not used.
+     * @return the amount of pinned virtual threads
+     */
+    long getPinnedThreadEvents();
+
+    /**
+     * Returns the total time virtual threads were pinned to their carrier thread while blocking.
+     * @return the total time virtual threads were pinned
+     * @see #getPinnedThreadEvents()
+     */
+    @NotNull Duration getPinnedThreadTime();
+}
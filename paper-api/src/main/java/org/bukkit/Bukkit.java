@@ -2869,6 +2869,15 @@ public final class Bukkit {
         return server.getAsyncScheduler();
     }
 
+    /**
+     * Returns the metrics of asynchronous plugin tasks, which run either on the async task scheduler or
+     * asynchronously on the {@link #getScheduler() Bukkit scheduler}.
+     * @return the asynchronous task metrics
+     */
+    public static @NotNull io.papermc.paper.threadedregions.scheduler.AsyncTaskMetrics getAsyncTaskMetrics() {
+        return server.getAsyncTaskMetrics();
+    }
+
     /**
      * Returns the global region task scheduler. The global task scheduler can be used to schedule
      * tasks to execute on the global region.
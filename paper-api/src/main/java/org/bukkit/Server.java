@@ -2596,6 +2596,13 @@ public interface Server extends PluginMessageRecipient, net.kyori.adventure.audi
      */
     @NotNull io.papermc.paper.threadedregions.scheduler.AsyncScheduler getAsyncScheduler();
 
+    /**
+     * Returns the metrics of asynchronous plugin tasks, which run either on the async task scheduler or
+     * asynchronously on the {@link #getScheduler() Bukkit scheduler}.
+     * @return the asynchronous task metrics
+     */
+    @NotNull io.papermc.paper.threadedregions.scheduler.AsyncTaskMetrics getAsyncTaskMetrics();
+
     /**
      * Returns the Folia global region task scheduler. The global task scheduler can be used to schedule
      * tasks to execute on the global region.
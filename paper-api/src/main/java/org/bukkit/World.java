@@ -151,6 +151,58 @@ public interface World extends RegionAccessor, WorldInfo, PluginMessageRecipient
     }
     // Paper end
 
+    // Paper start - bulk relight API
+    /**
+     * Relights the chunk sections containing the given positions after they were changed in bulk, for example by
+     * setting many blocks without physics.
+     * <p>
+     * Light is recomputed in a single pass off the main thread for every chunk holding one of the sections, together
+     * with its neighbours, as light may spread into them. Players receive one light update per relit chunk. Chunks
+     * which are not loaded or not lit yet are skipped.
+     *
+     * @param positions positions within the changed sections, one per section is enough
+     * @return a future completed on the main thread with the amount of relit chunks
+     */
+    java.util.concurrent.@NotNull CompletableFuture<Integer> relightSections(@NotNull java.util.Collection<? extends io.papermc.paper.math.Position> positions);
+    // Paper end - bulk relight API
+
+    // Paper start - adaptive activation range
+    /**
+     * Gets the activation range currently used for entities of the given category in this world.
+     * <p>
+     * This is the range configured in {@code spigot.yml}, unless the adaptive activation range of this world is
+     * enabled and shrunk it to keep ticking entities within its budget. A range of 0 or less means entities of the
+     * category are always active.
+     *
+     * @param category the activation category
+     * @return the activation range in blocks
+     * @see #getEntityActivationScale()
+     */
+    int getEntityActivationRange(io.papermc.paper.entity.activation.@NotNull ActivationCategory category);
+
+    /**
+     * Gets the amount of ticks an inactive entity of the given category currently has to be inactive before it may be
+     * woken up for a few ticks.
+     * <p>
+     * This is the interval configured in {@code spigot.yml}, unless the adaptive activation range of this world is
+     * enabled and lengthened it to keep ticking entities within its budget.
+     *
+     * @param category the activation category
+     * @return the wake-up interval in ticks, or -1 if inactive entities of the category are never woken up
+     */
+    int getInactiveEntityWakeUpInterval(io.papermc.paper.entity.activation.@NotNull ActivationCategory category);
+
+    /**
+     * Gets the fraction of the configured activation ranges currently used in this world.
+     * <p>
+     * This is 1 unless the adaptive activation range of this world is enabled and ticking entities took longer than
+     * its budget.
+     *
+     * @return the scale of the activation ranges, between 0 and 1
+     */
+    double getEntityActivationScale();
+    // Paper end - adaptive activation range
+
     /**
      * Gets the {@link Block} at the given coordinates
      *
@@ -21,6 +21,12 @@ public class HandlerList {
      */
     private volatile RegisteredListener[] handlers = null;
 
+    /**
+     * Whether any listener is registered, kept up to date by every
+     * registration change so that it can be read without baking.
+     */
+    private volatile boolean hasListeners;
+
     /**
      * Dynamic handler lists. These are changed using register() and
      * unregister() and are automatically baked to the handlers array any time
@@ -62,6 +68,7 @@ public class HandlerList {
                         list.clear();
                     }
                     h.handlers = null;
+                    h.hasListeners = false;
                 }
             }
         }
@@ -123,6 +130,7 @@ public class HandlerList {
             throw new IllegalStateException("This listener is already registered to priority " + listener.getPriority().toString());
         handlers = null;
         handlerslots.get(listener.getPriority()).add(listener);
+        hasListeners = true;
     }
 
     /**
@@ -144,6 +152,7 @@ public class HandlerList {
     public synchronized void unregister(@NotNull RegisteredListener listener) {
         if (handlerslots.get(listener.getPriority()).remove(listener)) {
             handlers = null;
+            updateHasListeners();
         }
     }
 
@@ -162,7 +171,10 @@ public class HandlerList {
                 }
             }
         }
-        if (changed) handlers = null;
+        if (changed) {
+            handlers = null;
+            updateHasListeners();
+        }
     }
 
     /**
@@ -180,7 +192,34 @@ public class HandlerList {
                 }
             }
         }
-        if (changed) handlers = null;
+        if (changed) {
+            handlers = null;
+            updateHasListeners();
+        }
+    }
+
+    private void updateHasListeners() {
+        for (List<RegisteredListener> list : handlerslots.values()) {
+            if (!list.isEmpty()) {
+                hasListeners = true;
+                return;
+            }
+        }
+        hasListeners = false;
+    }
+
+    /**
+     * Checks whether any listener is registered to this handler list.
+     * <p>
+     * Unlike {@link #getRegisteredListeners()} this never bakes the handler
+     * list and is a single volatile read, so it can be used to skip creating
+     * an event entirely when nothing listens to it. Listeners of disabled
+     * plugins are counted as well.
+     *
+     * @return whether any listener is registered
+     */
+    public boolean hasListeners() {
+        return hasListeners;
     }
 
     /**
@@ -66,6 +66,26 @@ public final class BitStorageWriter {
         bitInLongIndex += bits;
     }
 
+    public void skip(int count) {
+        // Same as calling skip() count times
+        if (bits == 0 || count <= 0) {
+            return;
+        }
+
+        int valuesPerLong = 64 / bits;
+        int values = bitInLongIndex / bits + count;
+
+        if (values <= valuesPerLong) {
+            bitInLongIndex = values * bits;
+        } else {
+            int longs = (values - 1) / valuesPerLong;
+            flush();
+            bitInLongIndex = (values - longs * valuesPerLong) * bits;
+            longInBufferIndex += longs * 8;
+            init();
+        }
+    }
+
     public void skip() {
         bitInLongIndex += bits;
 
@@ -2,7 +2,12 @@ package io.papermc.paper.antixray;
 
 import io.papermc.paper.configuration.WorldConfiguration;
 import io.papermc.paper.configuration.type.EngineMode;
+import it.unimi.dsi.fastutil.longs.Long2ObjectLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.shorts.ShortArraySet;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
@@ -12,8 +17,12 @@ import java.util.concurrent.ThreadLocalRandom;
 import java.util.function.IntSupplier;
 import net.minecraft.core.BlockPos;
 import net.minecraft.core.Direction;
+import net.minecraft.core.SectionPos;
 import net.minecraft.core.registries.Registries;
+import net.minecraft.network.protocol.Packet;
+import net.minecraft.network.protocol.game.ClientboundBlockUpdatePacket;
 import net.minecraft.network.protocol.game.ClientboundLevelChunkWithLightPacket;
+import net.minecraft.network.protocol.game.ClientboundSectionBlocksUpdatePacket;
 import net.minecraft.network.protocol.game.ServerboundPlayerActionPacket;
 import net.minecraft.server.MinecraftServer;
 import net.minecraft.server.level.ServerLevel;
@@ -25,6 +34,7 @@ import net.minecraft.world.level.biome.Biomes;
 import net.minecraft.world.level.block.Block;
 import net.minecraft.world.level.block.Blocks;
 import net.minecraft.world.level.block.EntityBlock;
+import net.minecraft.world.level.block.entity.BlockEntity;
 import net.minecraft.world.level.block.state.BlockState;
 import net.minecraft.world.level.chunk.EmptyLevelChunk;
 import net.minecraft.world.level.chunk.GlobalPalette;
@@ -43,6 +53,7 @@ public final class ChunkPacketBlockControllerAntiXray extends ChunkPacketBlockCo
     private final int maxBlockHeight;
     private final int updateRadius;
     private final boolean usePermission;
+    private final boolean bitsetEngine;
     private final BlockState[] presetBlockStates;
     private final BlockState[] presetBlockStatesFull;
     private final BlockState[] presetBlockStatesStone;
@@ -58,6 +69,11 @@ public final class ChunkPacketBlockControllerAntiXray extends ChunkPacketBlockCo
     private final boolean[] obfuscateGlobal = new boolean[Block.BLOCK_STATE_REGISTRY.size()];
     private final LevelChunkSection[] emptyNearbyChunkSections = {EMPTY_SECTION, EMPTY_SECTION, EMPTY_SECTION, EMPTY_SECTION};
     private final int maxBlockHeightUpdatePosition;
+    // The obfuscated blocks next to changed blocks of this tick, by chunk section
+    private final Long2ObjectLinkedOpenHashMap<long[]> blockUpdates = new Long2ObjectLinkedOpenHashMap<>();
+    private final Reference2ObjectOpenHashMap<ServerPlayer, RevealedBlocks> revealedBlocks = new Reference2ObjectOpenHashMap<>();
+    private final long[] revealed = new long[RevealedBlocks.LONGS];
+    private int ticks;
 
     public ChunkPacketBlockControllerAntiXray(Level level, Executor executor) {
         this.executor = executor;
@@ -66,6 +82,7 @@ public final class ChunkPacketBlockControllerAntiXray extends ChunkPacketBlockCo
         maxBlockHeight = paperWorldConfig.maxBlockHeight >> 4 << 4;
         updateRadius = paperWorldConfig.updateRadius;
         usePermission = paperWorldConfig.usePermission;
+        bitsetEngine = paperWorldConfig.bitsetEngine;
         List<Block> toObfuscate;
 
         if (engineMode == EngineMode.HIDE) {
@@ -169,6 +186,21 @@ public final class ChunkPacketBlockControllerAntiXray extends ChunkPacketBlockCo
 
     @Override
     public boolean shouldModify(ServerPlayer player, LevelChunk chunk) {
+        boolean shouldModify = shouldModify(player);
+
+        if (shouldModify && Bukkit.isPrimaryThread()) {
+            // The chunk is sent again, so the player doesn't know the real state of any obfuscated block of it anymore
+            RevealedBlocks revealedBlocksTemp = revealedBlocks.get(player);
+
+            if (revealedBlocksTemp != null) {
+                revealedBlocksTemp.forgetChunk(chunk.getPos().x, chunk.getPos().z, chunk.getMinSectionY(), chunk.getMaxSectionY());
+            }
+        }
+
+        return shouldModify;
+    }
+
+    private boolean shouldModify(ServerPlayer player) {
         return !usePermission || !player.getBukkitEntity().hasPermission("paper.antixray.bypass");
     }
 
@@ -209,27 +241,9 @@ public final class ChunkPacketBlockControllerAntiXray extends ChunkPacketBlockCo
     private static final ThreadLocal<boolean[][]> NEXT = ThreadLocal.withInitial(() -> new boolean[16][16]);
     private static final ThreadLocal<boolean[][]> NEXT_NEXT = ThreadLocal.withInitial(() -> new boolean[16][16]);
 
-    public void obfuscate(ChunkPacketInfoAntiXray chunkPacketInfoAntiXray) {
-        int[] presetBlockStateBits = this.presetBlockStateBits.get();
-        boolean[] solid = SOLID.get();
-        boolean[] obfuscate = OBFUSCATE.get();
-        boolean[][] current = CURRENT.get();
-        boolean[][] next = NEXT.get();
-        boolean[][] nextNext = NEXT_NEXT.get();
-        // bitStorageReader, bitStorageWriter and nearbyChunkSections could also be reused (with ThreadLocal if necessary) but it's not worth it
-        BitStorageReader bitStorageReader = new BitStorageReader();
-        BitStorageWriter bitStorageWriter = new BitStorageWriter();
-        LevelChunkSection[] nearbyChunkSections = new LevelChunkSection[4];
-        LevelChunk chunk = chunkPacketInfoAntiXray.getChunk();
-        Level level = chunk.getLevel();
-        int maxChunkSectionIndex = Math.min((maxBlockHeight >> 4) - chunk.getMinSectionY(), chunk.getSectionsCount()) - 1;
-        boolean[] solidTemp = null;
-        boolean[] obfuscateTemp = null;
-        bitStorageReader.setBuffer(chunkPacketInfoAntiXray.getBuffer());
-        bitStorageWriter.setBuffer(chunkPacketInfoAntiXray.getBuffer());
-        int numberOfBlocks = presetBlockStateBits.length;
+    private LayeredIntSupplier createRandom(int numberOfBlocks) {
         // Keep the lambda expressions as simple as possible. They are used very frequently.
-        LayeredIntSupplier random = numberOfBlocks == 1 ? (() -> 0) : engineMode == EngineMode.OBFUSCATE_LAYER ? new LayeredIntSupplier() {
+        return numberOfBlocks == 1 ? (() -> 0) : engineMode == EngineMode.OBFUSCATE_LAYER ? new LayeredIntSupplier() {
             // engine-mode: 3
             private int state;
             private int next;
@@ -270,33 +284,62 @@ public final class ChunkPacketBlockControllerAntiXray extends ChunkPacketBlockCo
                 return (int) ((Integer.toUnsignedLong(state) * numberOfBlocks) >>> 32);
             }
         };
+    }
+
+    private int[] getPresetBlockStateBits(ChunkPacketInfoAntiXray chunkPacketInfoAntiXray, int chunkSectionIndex, int[] presetBlockStateBits) {
+        if (chunkPacketInfoAntiXray.getPalette(chunkSectionIndex) instanceof GlobalPalette) {
+            if (engineMode == EngineMode.HIDE) {
+                LevelChunk chunk = chunkPacketInfoAntiXray.getChunk();
+                return switch (chunk.getLevel().getWorld().getEnvironment()) {
+                    case NETHER -> presetBlockStateBitsNetherrackGlobal;
+                    case THE_END -> presetBlockStateBitsEndStoneGlobal;
+                    default -> chunkSectionIndex + chunk.getMinSectionY() < 0 ? presetBlockStateBitsDeepslateGlobal : presetBlockStateBitsStoneGlobal;
+                };
+            }
+
+            return presetBlockStateBitsGlobal;
+        }
+
+        // If it's presetBlockStates, use this.presetBlockStatesFull instead
+        BlockState[] presetBlockStatesFull = chunkPacketInfoAntiXray.getPresetValues(chunkSectionIndex) == presetBlockStates ? this.presetBlockStatesFull : chunkPacketInfoAntiXray.getPresetValues(chunkSectionIndex);
+
+        for (int i = 0; i < presetBlockStateBits.length; i++) {
+            // This is thread safe because we only request IDs that are guaranteed to be in the palette and are visible
+            // For more details see the comments in the readPalette method
+            presetBlockStateBits[i] = chunkPacketInfoAntiXray.getPalette(chunkSectionIndex).idFor(presetBlockStatesFull[i]);
+        }
+
+        return presetBlockStateBits;
+    }
+
+    public void obfuscate(ChunkPacketInfoAntiXray chunkPacketInfoAntiXray) {
+        if (bitsetEngine) {
+            obfuscateBitset(chunkPacketInfoAntiXray);
+            return;
+        }
+
+        int[] presetBlockStateBits = this.presetBlockStateBits.get();
+        boolean[] solid = SOLID.get();
+        boolean[] obfuscate = OBFUSCATE.get();
+        boolean[][] current = CURRENT.get();
+        boolean[][] next = NEXT.get();
+        boolean[][] nextNext = NEXT_NEXT.get();
+        // bitStorageReader, bitStorageWriter and nearbyChunkSections could also be reused (with ThreadLocal if necessary) but it's not worth it
+        BitStorageReader bitStorageReader = new BitStorageReader();
+        BitStorageWriter bitStorageWriter = new BitStorageWriter();
+        LevelChunkSection[] nearbyChunkSections = new LevelChunkSection[4];
+        LevelChunk chunk = chunkPacketInfoAntiXray.getChunk();
+        int maxChunkSectionIndex = Math.min((maxBlockHeight >> 4) - chunk.getMinSectionY(), chunk.getSectionsCount()) - 1;
+        boolean[] solidTemp = null;
+        boolean[] obfuscateTemp = null;
+        bitStorageReader.setBuffer(chunkPacketInfoAntiXray.getBuffer());
+        bitStorageWriter.setBuffer(chunkPacketInfoAntiXray.getBuffer());
+        int numberOfBlocks = presetBlockStateBits.length;
+        LayeredIntSupplier random = createRandom(numberOfBlocks);
 
         for (int chunkSectionIndex = 0; chunkSectionIndex <= maxChunkSectionIndex; chunkSectionIndex++) {
             if (chunkPacketInfoAntiXray.isWritten(chunkSectionIndex) && chunkPacketInfoAntiXray.getPresetValues(chunkSectionIndex) != null) {
-                int[] presetBlockStateBitsTemp;
-
-                if (chunkPacketInfoAntiXray.getPalette(chunkSectionIndex) instanceof GlobalPalette) {
-                    if (engineMode == EngineMode.HIDE) {
-                        presetBlockStateBitsTemp = switch (level.getWorld().getEnvironment()) {
-                            case NETHER -> presetBlockStateBitsNetherrackGlobal;
-                            case THE_END -> presetBlockStateBitsEndStoneGlobal;
-                            default -> chunkSectionIndex + chunk.getMinSectionY() < 0 ? presetBlockStateBitsDeepslateGlobal : presetBlockStateBitsStoneGlobal;
-                        };
-                    } else {
-                        presetBlockStateBitsTemp = presetBlockStateBitsGlobal;
-                    }
-                } else {
-                    // If it's presetBlockStates, use this.presetBlockStatesFull instead
-                    BlockState[] presetBlockStatesFull = chunkPacketInfoAntiXray.getPresetValues(chunkSectionIndex) == presetBlockStates ? this.presetBlockStatesFull : chunkPacketInfoAntiXray.getPresetValues(chunkSectionIndex);
-                    presetBlockStateBitsTemp = presetBlockStateBits;
-
-                    for (int i = 0; i < presetBlockStateBitsTemp.length; i++) {
-                        // This is thread safe because we only request IDs that are guaranteed to be in the palette and are visible
-                        // For more details see the comments in the readPalette method
-                        presetBlockStateBitsTemp[i] = chunkPacketInfoAntiXray.getPalette(chunkSectionIndex).idFor(presetBlockStatesFull[i]);
-                    }
-                }
-
+                int[] presetBlockStateBitsTemp = getPresetBlockStateBits(chunkPacketInfoAntiXray, chunkSectionIndex, presetBlockStateBits);
                 bitStorageWriter.setIndex(chunkPacketInfoAntiXray.getIndex(chunkSectionIndex));
 
                 // Check if the chunk section below was not obfuscated
@@ -572,6 +615,166 @@ public final class ChunkPacketBlockControllerAntiXray extends ChunkPacketBlockCo
         }
     }
 
+    // Two decoded chunk sections, each the transparent blocks of its 16 layers followed by the blocks not to obfuscate
+    private static final int SECTION_MASKS = 16 * LayerMasks.LONGS;
+    private static final int TRANSPARENT_BELOW = 4 * SECTION_MASKS;
+    private static final int TRANSPARENT_ABOVE = TRANSPARENT_BELOW + LayerMasks.LONGS;
+    private static final int HIDDEN = TRANSPARENT_ABOVE + LayerMasks.LONGS;
+    private static final ThreadLocal<long[]> LAYER_MASKS = ThreadLocal.withInitial(() -> new long[HIDDEN + LayerMasks.LONGS]);
+
+    private void obfuscateBitset(ChunkPacketInfoAntiXray chunkPacketInfoAntiXray) {
+        // Same result as the obfuscate method, but the blocks to obfuscate are computed for a whole layer at once
+        // Blocks are still written in the same order, so that the random block states are the same as well
+        int[] presetBlockStateBits = this.presetBlockStateBits.get();
+        boolean[] solid = SOLID.get();
+        boolean[] obfuscate = OBFUSCATE.get();
+        long[] masks = LAYER_MASKS.get();
+        BitStorageReader bitStorageReader = new BitStorageReader();
+        BitStorageWriter bitStorageWriter = new BitStorageWriter();
+        LevelChunkSection[] nearbyChunkSections = new LevelChunkSection[4];
+        LevelChunk chunk = chunkPacketInfoAntiXray.getChunk();
+        int maxChunkSectionIndex = Math.min((maxBlockHeight >> 4) - chunk.getMinSectionY(), chunk.getSectionsCount()) - 1;
+        bitStorageReader.setBuffer(chunkPacketInfoAntiXray.getBuffer());
+        bitStorageWriter.setBuffer(chunkPacketInfoAntiXray.getBuffer());
+        LayeredIntSupplier random = createRandom(presetBlockStateBits.length);
+        int current = 0;
+        boolean decoded = false;
+
+        for (int chunkSectionIndex = 0; chunkSectionIndex <= maxChunkSectionIndex; chunkSectionIndex++) {
+            if (!chunkPacketInfoAntiXray.isWritten(chunkSectionIndex) || chunkPacketInfoAntiXray.getPresetValues(chunkSectionIndex) == null) {
+                decoded = false;
+                continue;
+            }
+
+            int[] presetBlockStateBitsTemp = getPresetBlockStateBits(chunkPacketInfoAntiXray, chunkSectionIndex, presetBlockStateBits);
+            int other = current == 0 ? 2 * SECTION_MASKS : 0;
+
+            if (decoded) {
+                // The chunk section below was obfuscated and has decoded this one already
+                System.arraycopy(masks, other + 15 * LayerMasks.LONGS, masks, TRANSPARENT_BELOW, LayerMasks.LONGS);
+            } else {
+                decodeSection(chunkPacketInfoAntiXray, chunkSectionIndex, bitStorageReader, solid, obfuscate, masks, current);
+                LevelChunkSection belowChunkSection = chunkSectionIndex == 0 ? EMPTY_SECTION : chunk.getSections()[chunkSectionIndex - 1];
+                readTransparent(belowChunkSection, 15, masks, TRANSPARENT_BELOW);
+            }
+
+            int layers = 16;
+
+            if (chunkSectionIndex != maxChunkSectionIndex && chunkPacketInfoAntiXray.isWritten(chunkSectionIndex + 1) && chunkPacketInfoAntiXray.getPresetValues(chunkSectionIndex + 1) != null) {
+                decodeSection(chunkPacketInfoAntiXray, chunkSectionIndex + 1, bitStorageReader, solid, obfuscate, masks, other);
+                System.arraycopy(masks, other, masks, TRANSPARENT_ABOVE, LayerMasks.LONGS);
+                decoded = true;
+            } else {
+                LevelChunkSection aboveChunkSection;
+
+                if (chunkSectionIndex != chunk.getSectionsCount() - 1 && (aboveChunkSection = chunk.getSections()[chunkSectionIndex + 1]) != EMPTY_SECTION) {
+                    readTransparent(aboveChunkSection, 0, masks, TRANSPARENT_ABOVE);
+                } else {
+                    // The upper layer is not obfuscated if there is nothing above
+                    layers = 15;
+                }
+
+                decoded = false;
+            }
+
+            bitStorageWriter.setBits(chunkPacketInfoAntiXray.getBits(chunkSectionIndex));
+            bitStorageWriter.setIndex(chunkPacketInfoAntiXray.getIndex(chunkSectionIndex));
+            nearbyChunkSections[0] = chunkPacketInfoAntiXray.getNearbyChunks()[0] == null ? EMPTY_SECTION : chunkPacketInfoAntiXray.getNearbyChunks()[0].getSections()[chunkSectionIndex];
+            nearbyChunkSections[1] = chunkPacketInfoAntiXray.getNearbyChunks()[1] == null ? EMPTY_SECTION : chunkPacketInfoAntiXray.getNearbyChunks()[1].getSections()[chunkSectionIndex];
+            nearbyChunkSections[2] = chunkPacketInfoAntiXray.getNearbyChunks()[2] == null ? EMPTY_SECTION : chunkPacketInfoAntiXray.getNearbyChunks()[2].getSections()[chunkSectionIndex];
+            nearbyChunkSections[3] = chunkPacketInfoAntiXray.getNearbyChunks()[3] == null ? EMPTY_SECTION : chunkPacketInfoAntiXray.getNearbyChunks()[3].getSections()[chunkSectionIndex];
+
+            for (int y = 0; y < layers; y++) {
+                int transparent = current + y * LayerMasks.LONGS;
+                LayerMasks.computeHidden(masks, transparent, transparent + SECTION_MASKS, y == 0 ? TRANSPARENT_BELOW : transparent - LayerMasks.LONGS, y == 15 ? TRANSPARENT_ABOVE : transparent + LayerMasks.LONGS, HIDDEN);
+                random.nextLayer();
+                writeLayer(y, bitStorageWriter, masks, presetBlockStateBitsTemp, nearbyChunkSections, random);
+            }
+
+            bitStorageWriter.flush();
+
+            if (decoded) {
+                current = other;
+            }
+        }
+
+        chunkPacketInfoAntiXray.getChunkPacket().setReady(true);
+    }
+
+    private void decodeSection(ChunkPacketInfoAntiXray chunkPacketInfoAntiXray, int chunkSectionIndex, BitStorageReader bitStorageReader, boolean[] solid, boolean[] obfuscate, long[] masks, int offset) {
+        bitStorageReader.setBits(chunkPacketInfoAntiXray.getBits(chunkSectionIndex));
+        bitStorageReader.setIndex(chunkPacketInfoAntiXray.getIndex(chunkSectionIndex));
+        boolean[] solidTemp = readPalette(chunkPacketInfoAntiXray.getPalette(chunkSectionIndex), solid, solidGlobal);
+        boolean[] obfuscateTemp = readPalette(chunkPacketInfoAntiXray.getPalette(chunkSectionIndex), obfuscate, obfuscateGlobal);
+
+        for (int i = 0; i < SECTION_MASKS; i++) {
+            long transparent = 0L;
+            long notObfuscated = 0L;
+
+            for (int bit = 0; bit < 64; bit++) {
+                int bits = bitStorageReader.read();
+                transparent |= solidTemp[bits] ? 0L : 1L << bit;
+                notObfuscated |= obfuscateTemp[bits] ? 0L : 1L << bit;
+            }
+
+            masks[offset + i] = transparent;
+            masks[offset + SECTION_MASKS + i] = notObfuscated;
+        }
+    }
+
+    private void readTransparent(LevelChunkSection chunkSection, int y, long[] masks, int offset) {
+        if (chunkSection == EMPTY_SECTION) {
+            Arrays.fill(masks, offset, offset + LayerMasks.LONGS, LayerMasks.ALL);
+            return;
+        }
+
+        for (int i = 0; i < LayerMasks.LONGS; i++) {
+            long transparent = 0L;
+
+            for (int bit = 0; bit < 64; bit++) {
+                int index = i << 6 | bit;
+                transparent |= isTransparent(chunkSection, index & 15, y, index >> 4) ? 1L << bit : 0L;
+            }
+
+            masks[offset + i] = transparent;
+        }
+    }
+
+    private void writeLayer(int y, BitStorageWriter bitStorageWriter, long[] masks, int[] presetBlockStateBits, LevelChunkSection[] nearbyChunkSections, IntSupplier random) {
+        int position = 0;
+
+        for (int i = 0; i < LayerMasks.LONGS; i++) {
+            long hidden = masks[HIDDEN + i];
+            long border = hidden & LayerMasks.border(i);
+
+            // Blocks on the border of the chunk may still be visible through the neighbouring chunks
+            while (border != 0L) {
+                int bit = Long.numberOfTrailingZeros(border);
+                border &= border - 1;
+                int index = i << 6 | bit;
+                int x = index & 15;
+                int z = index >> 4;
+
+                if (x == 0 && isTransparent(nearbyChunkSections[0], 15, y, z)
+                    || x == 15 && isTransparent(nearbyChunkSections[1], 0, y, z)
+                    || z == 0 && isTransparent(nearbyChunkSections[2], x, y, 15)
+                    || z == 15 && isTransparent(nearbyChunkSections[3], x, y, 0)) {
+                    hidden &= ~(1L << bit);
+                }
+            }
+
+            while (hidden != 0L) {
+                int index = i << 6 | Long.numberOfTrailingZeros(hidden);
+                hidden &= hidden - 1;
+                bitStorageWriter.skip(index - position);
+                bitStorageWriter.write(presetBlockStateBits[random.getAsInt()]);
+                position = index + 1;
+            }
+        }
+
+        bitStorageWriter.skip(256 - position);
+    }
+
     private boolean isTransparent(LevelChunkSection chunkSection, int x, int y, int z) {
         if (chunkSection == EMPTY_SECTION) {
             return true;
@@ -663,8 +866,132 @@ public final class ChunkPacketBlockControllerAntiXray extends ChunkPacketBlockCo
         BlockState blockState = level.getBlockStateIfLoaded(blockPos);
 
         if (blockState != null && obfuscateGlobal[GLOBAL_BLOCKSTATE_PALETTE.idFor(blockState)]) {
-            ((ServerLevel) level).getChunkSource().blockChanged(blockPos);
+            // Sent at the end of the tick, to the players who don't know the real block state yet
+            long[] blocks = blockUpdates.computeIfAbsent(SectionPos.asLong(blockPos), key -> new long[RevealedBlocks.LONGS]);
+            int index = RevealedBlocks.index(blockPos);
+            blocks[index >> 6] |= 1L << index;
+        }
+    }
+
+    @Override
+    public void flushBlockUpdates(ServerLevel level) {
+        if (++ticks % 200 == 0) {
+            revealedBlocks.reference2ObjectEntrySet().removeIf(entry -> {
+                ServerPlayer player = entry.getKey();
+
+                if (player.isRemoved() || player.level() != level) {
+                    return true;
+                }
+
+                entry.getValue().forgetUnsentChunks(player);
+                return entry.getValue().isEmpty();
+            });
+        }
+
+        if (blockUpdates.isEmpty()) {
+            return;
         }
+
+        for (Long2ObjectMap.Entry<long[]> entry : blockUpdates.long2ObjectEntrySet()) {
+            long sectionKey = entry.getLongKey();
+            long[] blocks = entry.getValue();
+            SectionPos sectionPos = SectionPos.of(sectionKey);
+            LevelChunk chunk = level.getChunkSource().getChunkNow(sectionPos.x(), sectionPos.z());
+
+            if (chunk == null) {
+                continue;
+            }
+
+            List<ServerPlayer> players = level.getChunkSource().chunkMap.getPlayers(sectionPos.chunk(), false);
+
+            if (players.isEmpty()) {
+                continue;
+            }
+
+            LevelChunkSection chunkSection = chunk.getSection(chunk.getSectionIndexFromSectionY(sectionPos.y()));
+            int count = 0;
+
+            for (long bits : blocks) {
+                count += Long.bitCount(bits);
+            }
+
+            Packet<?> packet = null;
+
+            for (ServerPlayer player : players) {
+                if (!shouldModify(player)) {
+                    // The player received the real block states with the chunk
+                    continue;
+                }
+
+                RevealedBlocks revealedBlocksTemp = revealedBlocks.computeIfAbsent(player, p -> new RevealedBlocks());
+                int revealedCount = revealedBlocksTemp.reveal(sectionKey, blocks, revealed);
+
+                if (revealedCount == 0) {
+                    continue;
+                }
+
+                if (revealedCount == count) {
+                    // Usually none of the blocks were revealed before, so the packet can be shared
+                    if (packet == null) {
+                        packet = createBlockUpdatePacket(sectionPos, chunkSection, blocks, count);
+                    }
+
+                    player.connection.send(packet);
+                } else {
+                    player.connection.send(createBlockUpdatePacket(sectionPos, chunkSection, revealed, revealedCount));
+                }
+
+                sendBlockEntityUpdates(level, player, sectionPos, chunkSection, revealed);
+            }
+        }
+
+        blockUpdates.clear();
+    }
+
+    private Packet<?> createBlockUpdatePacket(SectionPos sectionPos, LevelChunkSection chunkSection, long[] blocks, int count) {
+        if (count == 1) {
+            int index = nextBlock(blocks, 0);
+            return new ClientboundBlockUpdatePacket(sectionPos.origin().offset(index & 15, index >> 8, index >> 4 & 15), chunkSection.getBlockState(index & 15, index >> 8, index >> 4 & 15));
+        }
+
+        short[] positions = new short[count];
+        int i = 0;
+
+        for (int index = nextBlock(blocks, 0); index != -1; index = nextBlock(blocks, index + 1)) {
+            positions[i++] = RevealedBlocks.sectionRelativePos(index);
+        }
+
+        // The positions are distinct already
+        return new ClientboundSectionBlocksUpdatePacket(sectionPos, new ShortArraySet(positions, count), chunkSection);
+    }
+
+    private void sendBlockEntityUpdates(ServerLevel level, ServerPlayer player, SectionPos sectionPos, LevelChunkSection chunkSection, long[] blocks) {
+        if (!chunkSection.maybeHas(BlockState::hasBlockEntity)) {
+            return;
+        }
+
+        for (int index = nextBlock(blocks, 0); index != -1; index = nextBlock(blocks, index + 1)) {
+            if (chunkSection.getBlockState(index & 15, index >> 8, index >> 4 & 15).hasBlockEntity()) {
+                BlockEntity blockEntity = level.getBlockEntity(sectionPos.origin().offset(index & 15, index >> 8, index >> 4 & 15));
+                Packet<?> packet = blockEntity == null ? null : blockEntity.getUpdatePacket();
+
+                if (packet != null) {
+                    player.connection.send(packet);
+                }
+            }
+        }
+    }
+
+    private static int nextBlock(long[] blocks, int fromIndex) {
+        for (int i = fromIndex >> 6; i < blocks.length; i++) {
+            long bits = i == fromIndex >> 6 ? blocks[i] & (-1L << fromIndex) : blocks[i];
+
+            if (bits != 0L) {
+                return i << 6 | Long.numberOfTrailingZeros(bits);
+            }
+        }
+
+        return -1;
     }
 
     @FunctionalInterface
@@ -0,0 +1,56 @@
+package io.papermc.paper.antixray;
+
+/**
+ * Bitset operations on the 16x16 blocks of a chunk section layer, stored in {@link #LONGS} longs. Block {@code (x, z)}
+ * is bit {@code (z << 4 | x) & 63} of long {@code z >> 2}, so every long holds four rows and the bits are in the
+ * order blocks are stored in a paletted container.
+ */
+final class LayerMasks {
+
+    static final int LONGS = 4;
+    static final long ALL = -1L;
+
+    private static final long COLUMN_0 = 0x0001_0001_0001_0001L;
+    private static final long COLUMN_15 = 0x8000_8000_8000_8000L;
+    private static final long ROW_0 = 0xFFFFL;
+    private static final long ROW_3 = 0xFFFFL << 48;
+
+    private LayerMasks() {
+    }
+
+    /**
+     * Computes the blocks of a layer which are hidden, that is neither next to a transparent block of this layer,
+     * nor below or above a transparent block, nor excluded from obfuscation. Blocks on the border of the chunk are not
+     * checked against the neighbouring chunks.
+     *
+     * @param masks the array holding all masks
+     * @param transparent offset of the transparent blocks of the layer
+     * @param notObfuscated offset of the blocks of the layer which are not to be obfuscated
+     * @param transparentBelow offset of the transparent blocks of the lower layer
+     * @param transparentAbove offset of the transparent blocks of the upper layer
+     * @param hidden offset to store the hidden blocks of the layer at
+     */
+    static void computeHidden(final long[] masks, final int transparent, final int notObfuscated, final int transparentBelow, final int transparentAbove, final int hidden) {
+        for (int i = 0; i < LONGS; ++i) {
+            final long current = masks[transparent + i];
+            final long west = (current << 1) & ~COLUMN_0;
+            final long east = (current >>> 1) & ~COLUMN_15;
+            final long north = (current << 16) | (i == 0 ? 0L : masks[transparent + i - 1] >>> 48);
+            final long south = (current >>> 16) | (i == LONGS - 1 ? 0L : masks[transparent + i + 1] << 48);
+            masks[hidden + i] = ~(west | east | north | south | masks[notObfuscated + i] | masks[transparentBelow + i] | masks[transparentAbove + i]);
+        }
+    }
+
+    /**
+     * {@return the bits of a long of a layer which are on the border of the chunk}
+     */
+    static long border(final int i) {
+        long ret = COLUMN_0 | COLUMN_15;
+        if (i == 0) {
+            ret |= ROW_0;
+        } else if (i == LONGS - 1) {
+            ret |= ROW_3;
+        }
+        return ret;
+    }
+}
@@ -0,0 +1,78 @@
+package io.papermc.paper.antixray;
+
+import io.papermc.paper.FeatureHooks;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.SectionPos;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.level.ChunkPos;
+
+/**
+ * The obfuscated blocks whose real block state a player already received after the chunk packet. Each chunk section
+ * is a bitset of its 4096 blocks, with block {@code (x, y, z)} at bit {@code y << 8 | z << 4 | x}.
+ */
+final class RevealedBlocks {
+
+    static final int LONGS = 4096 / Long.SIZE;
+
+    private final Long2ObjectOpenHashMap<long[]> sections = new Long2ObjectOpenHashMap<>();
+
+    /**
+     * Marks blocks of a chunk section as revealed.
+     *
+     * @param sectionKey the key of the chunk section
+     * @param blocks the blocks to reveal
+     * @param revealed the array to store the blocks which were not revealed before in
+     * @return the amount of blocks which were not revealed before
+     */
+    int reveal(final long sectionKey, final long[] blocks, final long[] revealed) {
+        final long[] section = this.sections.computeIfAbsent(sectionKey, key -> new long[LONGS]);
+        int ret = 0;
+        for (int i = 0; i < LONGS; ++i) {
+            final long bits = blocks[i] & ~section[i];
+            section[i] |= bits;
+            revealed[i] = bits;
+            ret += Long.bitCount(bits);
+        }
+        return ret;
+    }
+
+    /**
+     * Forgets the revealed blocks of a chunk, as the chunk is sent again with all blocks obfuscated.
+     */
+    void forgetChunk(final int chunkX, final int chunkZ, final int minSectionY, final int maxSectionY) {
+        if (this.sections.isEmpty()) {
+            return;
+        }
+        for (int sectionY = minSectionY; sectionY <= maxSectionY; ++sectionY) {
+            this.sections.remove(SectionPos.asLong(chunkX, sectionY, chunkZ));
+        }
+    }
+
+    /**
+     * Forgets the revealed blocks of chunks which are no longer sent to the player.
+     */
+    void forgetUnsentChunks(final ServerPlayer player) {
+        for (final ObjectIterator<Long2ObjectMap.Entry<long[]>> iterator = this.sections.long2ObjectEntrySet().fastIterator(); iterator.hasNext(); ) {
+            final long sectionKey = iterator.next().getLongKey();
+            if (!FeatureHooks.isChunkSent(player, ChunkPos.asLong(SectionPos.x(sectionKey), SectionPos.z(sectionKey)))) {
+                iterator.remove();
+            }
+        }
+    }
+
+    boolean isEmpty() {
+        return this.sections.isEmpty();
+    }
+
+    static int index(final BlockPos blockPos) {
+        return (blockPos.getY() & 15) << 8 | (blockPos.getZ() & 15) << 4 | (blockPos.getX() & 15);
+    }
+
+    static short sectionRelativePos(final int index) {
+        // SectionPos#sectionRelativePos orders the coordinates x, z, y
+        return (short) ((index & 15) << 8 | (index >> 4 & 15) << 4 | index >> 8);
+    }
+}
@@ -0,0 +1,164 @@
+package io.papermc.paper.block.hopper;
+
+import io.papermc.paper.event.block.HopperPipelineTransferEvent;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.Container;
+import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.level.block.entity.HopperBlockEntity;
+import org.bukkit.craftbukkit.block.CraftBlock;
+import org.bukkit.craftbukkit.inventory.CraftItemStack;
+import org.bukkit.event.inventory.HopperInventorySearchEvent;
+import org.bukkit.event.inventory.InventoryMoveItemEvent;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Ticks chains of hoppers feeding each other as one unit, one instance per level.
+ * <p>
+ * Every hopper remembers the hopper it last pushed into. When the ticking of block entities reaches a hopper, the
+ * chain starting at it is followed through these links and all of its hoppers are ticked right away, the last one
+ * first. Every hopper still ticks exactly once per tick with its own cooldown, so items move through a chain as
+ * fast as in vanilla, the hoppers are just ticked in one of the orders vanilla may tick them in depending on when
+ * they were loaded. While a pipeline ticks, its hoppers push into the next hopper without looking it up again.
+ * <p>
+ * Moves between two hoppers of the pipeline are only batched into a single {@link HopperPipelineTransferEvent} while
+ * nothing listens to {@link InventoryMoveItemEvent}. As soon as anything does, every move calls its own cancellable
+ * event again, so protection and filter plugins keep working.
+ */
+@NullMarked
+public final class HopperPipeline {
+
+    // longer chains are ticked as several pipelines
+    private static final int MAX_LENGTH = 1024;
+
+    private final List<HopperBlockEntity> members = new ArrayList<>();
+    private final List<HopperPipelineTransferEvent.Transfer> transfers = new ArrayList<>();
+    private long lastId;
+    // the id of the ticking pipeline, 0 if none is ticking
+    private long currentId;
+
+    public boolean isTicking() {
+        return this.currentId != 0;
+    }
+
+    /**
+     * Ticks the pipeline starting at the given hopper, unless the hopper already ticked as part of another pipeline
+     * during this tick.
+     *
+     * @param level the level of the hopper
+     * @param hopper the hopper whose ticker is running
+     */
+    public void tick(final ServerLevel level, final HopperBlockEntity hopper) {
+        if (!this.begin(hopper, level.getGameTime(), target -> target.getLevel() == level && level.shouldTickBlocksAt(target.getBlockPos()))) {
+            return;
+        }
+
+        try {
+            // the last hopper first, so every hopper pushes out before it is pushed into
+            for (int i = this.members.size() - 1; i >= 0; --i) {
+                final HopperBlockEntity toTick = this.members.get(i);
+                HopperBlockEntity.pushItemsTick(level, toTick.getBlockPos(), toTick.getBlockState(), toTick);
+            }
+        } finally {
+            this.end();
+        }
+
+        if (!this.transfers.isEmpty()) {
+            final List<HopperPipelineTransferEvent.Transfer> transfers = List.copyOf(this.transfers);
+            this.transfers.clear();
+            new HopperPipelineTransferEvent(CraftBlock.at(level, hopper.getBlockPos()), transfers).callEvent();
+        }
+    }
+
+    // collects the chain starting at the hopper and marks it as ticking, false if the hopper already ticked
+    boolean begin(final HopperBlockEntity hopper, final long gameTime, final Predicate<HopperBlockEntity> canTick) {
+        if (hopper.pipelineTick == gameTime) {
+            return false;
+        }
+
+        final long id = ++this.lastId;
+        @Nullable HopperBlockEntity member = hopper;
+        do {
+            member.pipelineTick = gameTime;
+            member.pipelineId = id;
+            this.members.add(member);
+            member = next(member, gameTime, canTick);
+        } while (member != null && this.members.size() < MAX_LENGTH);
+
+        this.currentId = id;
+        return true;
+    }
+
+    void end() {
+        this.currentId = 0;
+        this.members.clear();
+    }
+
+    List<HopperBlockEntity> members() {
+        return this.members;
+    }
+
+    private static @Nullable HopperBlockEntity next(final HopperBlockEntity member, final long gameTime, final Predicate<HopperBlockEntity> canTick) {
+        final @Nullable HopperBlockEntity target = member.getPipelineTarget();
+        if (target == null || target.pipelineTick == gameTime || !canTick.test(target)) {
+            return null;
+        }
+        return target;
+    }
+
+    /**
+     * Gets the hopper the given hopper pushes into without looking it up, if both are part of the ticking pipeline.
+     *
+     * @param hopper the pushing hopper
+     * @return the next hopper of the pipeline, or {@code null} if it has to be looked up
+     */
+    public @Nullable HopperBlockEntity getCachedTarget(final HopperBlockEntity hopper) {
+        if (this.currentId == 0 || HopperInventorySearchEvent.getHandlerList().hasListeners()) {
+            return null;
+        }
+        final @Nullable HopperBlockEntity target = hopper.getPipelineTarget();
+        return target != null && this.isMember(hopper) && this.isMember(target) ? target : null;
+    }
+
+    private boolean isMember(final Container container) {
+        return this.currentId != 0 && container instanceof HopperBlockEntity hopper && hopper.pipelineId == this.currentId;
+    }
+
+    /**
+     * Checks whether a move between the given containers is reported by the {@link HopperPipelineTransferEvent} of
+     * the ticking pipeline instead of an {@link InventoryMoveItemEvent}. This is only the case for moves between two
+     * hoppers of the pipeline, and only while nothing listens to the inventory move event.
+     *
+     * @param source the container the item is moved out of
+     * @param destination the container the item is moved into
+     * @return whether the move is batched by the pipeline
+     */
+    public boolean isBatched(final Container source, final Container destination) {
+        return this.isMember(source) && this.isMember(destination) && !InventoryMoveItemEvent.getHandlerList().hasListeners();
+    }
+
+    /**
+     * Records a move for the {@link HopperPipelineTransferEvent} of the ticking pipeline, if the move is batched by
+     * it and anything listens to the event.
+     *
+     * @param source the container the item was moved out of
+     * @param destination the container the item was moved into
+     * @param item the moved item, its count is ignored
+     * @param count the amount of items moved
+     */
+    public void recordTransfer(final Container source, final Container destination, final ItemStack item, final int count) {
+        if (!this.isBatched(source, destination) || !HopperPipelineTransferEvent.getHandlerList().hasListeners()) {
+            return;
+        }
+        final HopperBlockEntity sourceHopper = (HopperBlockEntity) source;
+        final HopperBlockEntity destinationHopper = (HopperBlockEntity) destination;
+        this.transfers.add(new HopperPipelineTransferEvent.Transfer(
+            CraftBlock.at(sourceHopper.getLevel(), sourceHopper.getBlockPos()),
+            CraftBlock.at(destinationHopper.getLevel(), destinationHopper.getBlockPos()),
+            CraftItemStack.asBukkitCopy(item.copyWithCount(count))
+        ));
+    }
+}
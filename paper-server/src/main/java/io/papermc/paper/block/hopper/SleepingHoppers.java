@@ -0,0 +1,136 @@
+package io.papermc.paper.block.hopper;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.Direction;
+import net.minecraft.util.Mth;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.entity.item.ItemEntity;
+import net.minecraft.world.entity.vehicle.ContainerEntity;
+import net.minecraft.world.level.block.ChestBlock;
+import net.minecraft.world.level.block.entity.HopperBlockEntity;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.block.state.properties.ChestType;
+import net.minecraft.world.phys.AABB;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * The hoppers of a level which are not ticked until something around them changes.
+ * <p>
+ * A hopper which failed to move an item only depends on its own items, the blocks and containers above and in front
+ * of it, and the item entities above it. When none of those can change without a notification, the hopper sleeps
+ * until one of them is reported here: a block change, a {@code setChanged} of a block entity container, or an item
+ * or container entity moving into reach. Waking wakes every hopper which might depend on the changed position, so a
+ * hopper may wake without being able to move anything, in which case it falls asleep again after one attempt.
+ * <p>
+ * Changes which bypass these notifications, like plugins editing containers other than hoppers without marking them
+ * changed, are not seen by sleeping hoppers, which is why sleeping is optional.
+ */
+@NullMarked
+public final class SleepingHoppers {
+
+    private final Long2ObjectOpenHashMap<HopperBlockEntity> sleeping = new Long2ObjectOpenHashMap<>();
+
+    public void sleep(final HopperBlockEntity hopper) {
+        hopper.sleeping = true;
+        this.sleeping.put(hopper.getBlockPos().asLong(), hopper);
+    }
+
+    public void wake(final HopperBlockEntity hopper) {
+        hopper.sleeping = false;
+        this.sleeping.remove(hopper.getBlockPos().asLong(), hopper);
+    }
+
+    public int size() {
+        return this.sleeping.size();
+    }
+
+    private void wake(final int x, final int y, final int z) {
+        final @Nullable HopperBlockEntity hopper = this.sleeping.remove(BlockPos.asLong(x, y, z));
+        if (hopper != null) {
+            hopper.sleeping = false;
+        }
+    }
+
+    // the hopper at the position, the hopper pulling from it and the hoppers which may push into it
+    private void wakeAround(final int x, final int y, final int z) {
+        this.wake(x, y, z);
+        this.wake(x, y - 1, z);
+        this.wake(x, y + 1, z);
+        this.wake(x - 1, y, z);
+        this.wake(x + 1, y, z);
+        this.wake(x, y, z - 1);
+        this.wake(x, y, z + 1);
+    }
+
+    /**
+     * Wakes the hoppers depending on a block which changed.
+     *
+     * @param pos the position of the block
+     */
+    public void wakeAround(final BlockPos pos) {
+        if (this.sleeping.isEmpty()) {
+            return;
+        }
+        this.wakeAround(pos.getX(), pos.getY(), pos.getZ());
+    }
+
+    /**
+     * Wakes the hoppers depending on a block entity container whose items changed.
+     *
+     * @param pos the position of the container
+     * @param state the block state of the container
+     */
+    public void wakeForContainer(final BlockPos pos, final BlockState state) {
+        if (this.sleeping.isEmpty()) {
+            return;
+        }
+        this.wakeAround(pos.getX(), pos.getY(), pos.getZ());
+        // hoppers see both halves of a double chest as one container
+        if (state.getBlock() instanceof ChestBlock && state.getValue(ChestBlock.TYPE) != ChestType.SINGLE) {
+            final Direction connected = ChestBlock.getConnectedDirection(state);
+            this.wakeAround(pos.getX() + connected.getStepX(), pos.getY() + connected.getStepY(), pos.getZ() + connected.getStepZ());
+        }
+    }
+
+    /**
+     * Wakes the hoppers which may pick up the entity or use it as a container, if the entity just spawned or moved.
+     *
+     * @param entity the entity which was ticked
+     */
+    public void wakeForEntity(final Entity entity) {
+        if (this.sleeping.isEmpty()) {
+            return;
+        }
+        final boolean item = entity instanceof ItemEntity;
+        if (!item && !(entity instanceof ContainerEntity)) {
+            return;
+        }
+        if (entity.tickCount > 1 && entity.getX() == entity.xo && entity.getY() == entity.yo && entity.getZ() == entity.zo) {
+            return;
+        }
+
+        final AABB box = entity.getBoundingBox();
+        final int minX = Mth.floor(box.minX);
+        final int minY = Mth.floor(box.minY);
+        final int minZ = Mth.floor(box.minZ);
+        final int maxX = Mth.floor(box.maxX);
+        final int maxY = Mth.floor(box.maxY);
+        final int maxZ = Mth.floor(box.maxZ);
+        for (int x = minX; x <= maxX; ++x) {
+            for (int z = minZ; z <= maxZ; ++z) {
+                if (item) {
+                    // hoppers pick up items inside them and in the block above them
+                    for (int y = minY - 1; y <= maxY; ++y) {
+                        this.wake(x, y, z);
+                    }
+                } else {
+                    for (int y = minY; y <= maxY; ++y) {
+                        this.wakeAround(x, y, z);
+                    }
+                }
+            }
+        }
+    }
+}
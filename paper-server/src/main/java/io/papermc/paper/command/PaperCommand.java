@@ -1,15 +1,20 @@
 package io.papermc.paper.command;
 
 import io.papermc.paper.FeatureHooks;
+import io.papermc.paper.command.subcommands.ActivationRangeCommand;
 import io.papermc.paper.command.subcommands.DumpItemCommand;
 import io.papermc.paper.command.subcommands.DumpListenersCommand;
 import io.papermc.paper.command.subcommands.DumpPluginsCommand;
 import io.papermc.paper.command.subcommands.EntityCommand;
 import io.papermc.paper.command.subcommands.HeapDumpCommand;
+import io.papermc.paper.command.subcommands.LightCommand;
 import io.papermc.paper.command.subcommands.MobcapsCommand;
+import io.papermc.paper.command.subcommands.NetworkCommand;
 import io.papermc.paper.command.subcommands.ReloadCommand;
 import io.papermc.paper.command.subcommands.SyncLoadInfoCommand;
+import io.papermc.paper.command.subcommands.UpgradeWorldCommand;
 import io.papermc.paper.command.subcommands.VersionCommand;
+import io.papermc.paper.command.subcommands.ZstdCommand;
 import it.unimi.dsi.fastutil.Pair;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -51,6 +56,11 @@ public final class PaperCommand extends Command {
         commands.put(Set.of("dumpitem"), new DumpItemCommand());
         commands.put(Set.of("mobcaps", "playermobcaps"), new MobcapsCommand());
         commands.put(Set.of("dumplisteners"), new DumpListenersCommand());
+        commands.put(Set.of("zstd"), new ZstdCommand());
+        commands.put(Set.of("network"), new NetworkCommand());
+        commands.put(Set.of("light"), new LightCommand());
+        commands.put(Set.of("upgradeworld"), new UpgradeWorldCommand());
+        commands.put(Set.of("activationrange"), new ActivationRangeCommand());
         FeatureHooks.registerPaperCommands(commands);
 
         return commands.entrySet().stream()
@@ -0,0 +1,92 @@
+package io.papermc.paper.command.subcommands;
+
+import io.papermc.paper.command.CommandUtil;
+import io.papermc.paper.command.PaperSubcommand;
+import io.papermc.paper.entity.activation.ActivationType;
+import io.papermc.paper.entity.activation.AdaptiveActivationRange;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.JoinConfiguration;
+import net.kyori.adventure.text.format.NamedTextColor;
+import net.minecraft.server.level.ServerLevel;
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.command.CommandSender;
+import org.bukkit.craftbukkit.CraftWorld;
+import org.bukkit.entity.Player;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.framework.qual.DefaultQualifier;
+
+import static net.kyori.adventure.text.Component.text;
+
+@DefaultQualifier(NonNull.class)
+public final class ActivationRangeCommand implements PaperSubcommand {
+
+    @Override
+    public boolean execute(final CommandSender sender, final String subCommand, final String[] args) {
+        final List<World> worlds;
+        if (args.length == 0) {
+            if (sender instanceof Player player) {
+                worlds = List.of(player.getWorld());
+            } else {
+                sender.sendMessage(text("Must specify a world! ex: '/paper activationrange world'", NamedTextColor.RED));
+                return true;
+            }
+        } else if (args.length == 1) {
+            final String input = args[0];
+            if (input.equals("*")) {
+                worlds = Bukkit.getWorlds();
+            } else {
+                final @Nullable World world = Bukkit.getWorld(input);
+                if (world == null) {
+                    sender.sendMessage(text("'" + input + "' is not a valid world!", NamedTextColor.RED));
+                    return true;
+                }
+                worlds = List.of(world);
+            }
+        } else {
+            sender.sendMessage(text("Too many arguments!", NamedTextColor.RED));
+            return true;
+        }
+
+        for (final World world : worlds) {
+            this.printRanges(sender, ((CraftWorld) world).getHandle());
+        }
+        return true;
+    }
+
+    @Override
+    public List<String> tabComplete(final CommandSender sender, final String subCommand, final String[] args) {
+        if (args.length == 1) {
+            final List<String> worlds = new ArrayList<>(Bukkit.getWorlds().stream().map(World::getName).toList());
+            worlds.add("*");
+            return CommandUtil.getListMatchingLast(sender, args, worlds);
+        }
+        return Collections.emptyList();
+    }
+
+    private void printRanges(final CommandSender sender, final ServerLevel level) {
+        final AdaptiveActivationRange adaptive = level.adaptiveActivationRange;
+        final boolean enabled = level.paperConfig().entities.adaptiveActivationRange.enabled;
+        sender.sendMessage(Component.join(JoinConfiguration.noSeparators(),
+            text("Activation ranges for world: "),
+            text(level.getWorld().getName(), NamedTextColor.AQUA),
+            enabled
+                ? text(String.format(Locale.ROOT, " (scale %.2f, entity tick time %.2fms of %.2fms)", adaptive.getScale(), adaptive.getAverageTickTime(), level.paperConfig().entities.adaptiveActivationRange.entityTickBudget))
+                : text(" (adaptive activation range disabled)", NamedTextColor.GRAY)
+        ));
+
+        for (final ActivationType type : ActivationType.values()) {
+            final int wakeUpEvery = adaptive.getWakeUpInactiveEvery(type);
+            sender.sendMessage(Component.join(JoinConfiguration.noSeparators(),
+                text("  " + type.name().toLowerCase(Locale.ROOT) + ": ", NamedTextColor.GRAY),
+                text(adaptive.getActivationRange(type) + " blocks", NamedTextColor.GREEN),
+                wakeUpEvery < 0 ? Component.empty() : text(", inactive wake-up every " + wakeUpEvery + " ticks", NamedTextColor.GRAY)
+            ));
+        }
+    }
+}
@@ -2,6 +2,7 @@ package io.papermc.paper.command.subcommands;
 
 import com.destroystokyo.paper.util.SneakyThrow;
 import io.papermc.paper.command.PaperSubcommand;
+import io.papermc.paper.event.EventFastPath;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.lang.invoke.MethodHandle;
@@ -92,6 +93,11 @@ public final class DumpListenersCommand implements PaperSubcommand {
                         writer.println(" - " + registeredListener);
                     }
                 }
+                writer.println();
+                writer.println("Events skipped while no listener was registered:");
+                for (final EventFastPath fastPath : EventFastPath.all()) {
+                    writer.println(" - " + fastPath.eventClass().getName() + ": " + fastPath.skipped());
+                }
             }
         } catch (final IOException ex) {
             sender.sendMessage(text("Failed to write dumped listener! See the console for more info.", RED));
@@ -122,6 +128,7 @@ public final class DumpListenersCommand implements PaperSubcommand {
 
             if (handlers.getRegisteredListeners().length == 0) {
                 sender.sendMessage(text(className + " does not have any registered listeners."));
+                this.sendSkipped(sender, className);
                 return;
             }
 
@@ -142,6 +149,7 @@ public final class DumpListenersCommand implements PaperSubcommand {
             }
 
             sender.sendMessage(text("Total listeners: " + handlers.getRegisteredListeners().length));
+            this.sendSkipped(sender, className);
 
         } catch (final ClassNotFoundException e) {
             sender.sendMessage(text("Unable to find a class named '" + className + "'. Make sure to use the fully qualified name.", RED));
@@ -153,6 +161,15 @@ public final class DumpListenersCommand implements PaperSubcommand {
         }
     }
 
+    private void sendSkipped(final CommandSender sender, final String className) {
+        for (final EventFastPath fastPath : EventFastPath.all()) {
+            if (fastPath.eventClass().getName().equals(className)) {
+                sender.sendMessage(text("Skipped while no listener was registered: " + fastPath.skipped(), GRAY));
+                return;
+            }
+        }
+    }
+
     @Override
     public List<String> tabComplete(final CommandSender sender, final String subCommand, final String[] args) {
         return switch (args.length) {
@@ -15,6 +15,7 @@ import net.kyori.adventure.text.event.ClickEvent;
 import net.kyori.adventure.text.event.HoverEvent;
 import net.minecraft.core.registries.BuiltInRegistries;
 import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.level.ChunkMap;
 import net.minecraft.server.level.ServerChunkCache;
 import net.minecraft.server.level.ServerLevel;
 import net.minecraft.world.entity.EntityType;
@@ -39,6 +40,10 @@ import static net.kyori.adventure.text.format.NamedTextColor.RED;
 public final class EntityCommand implements PaperSubcommand {
     @Override
     public boolean execute(final CommandSender sender, final String subCommand, final String[] args) {
+        if (args.length > 0 && args[0].toLowerCase(Locale.ROOT).equals("tracker")) {
+            this.trackerStats(sender, args);
+            return true;
+        }
         this.listEntities(sender, args);
         return true;
     }
@@ -46,20 +51,49 @@ public final class EntityCommand implements PaperSubcommand {
     @Override
     public List<String> tabComplete(final CommandSender sender, final String subCommand, final String[] args) {
         if (args.length == 1) {
-            return CommandUtil.getListMatchingLast(sender, args, "help", "list");
+            return CommandUtil.getListMatchingLast(sender, args, "help", "list", "tracker");
+        } else if (args.length == 2 && args[0].toLowerCase(Locale.ROOT).equals("tracker")) {
+            return CommandUtil.getListMatchingLast(sender, args, Bukkit.getWorlds().stream().map(World::getName).toList());
         } else if (args.length == 2) {
             return CommandUtil.getListMatchingLast(sender, args, BuiltInRegistries.ENTITY_TYPE.keySet());
         }
         return Collections.emptyList();
     }
 
+    private void trackerStats(final CommandSender sender, final String[] args) {
+        final List<World> worlds;
+        if (args.length > 1 && args[1].toLowerCase(Locale.ROOT).equals("help")) {
+            sender.sendMessage(text("Use /paper entity tracker [worldName] to get how many entity tracker checks of entity and player pairs were skipped.", RED));
+            return;
+        }
+        if (args.length > 1) {
+            final @Nullable World world = Bukkit.getWorld(args[1]);
+            if (world == null) {
+                sender.sendMessage(text("Could not find world " + args[1] + ". Please select a valid world.", RED));
+                sender.sendMessage(text("Usage: /paper entity tracker [worldName]", RED));
+                return;
+            }
+            worlds = List.of(world);
+        } else {
+            worlds = Bukkit.getWorlds();
+        }
+
+        for (final World world : worlds) {
+            final ChunkMap chunkMap = ((CraftWorld) world).getHandle().getChunkSource().chunkMap;
+            final long checked = chunkMap.trackerPairChecks;
+            final long skipped = chunkMap.trackerPairChecksSkipped;
+            final long total = checked + skipped;
+            sender.sendMessage(text(world.getName() + ": " + checked + " checked, " + skipped + " skipped tracker pairs (" + (total == 0L ? 0L : skipped * 100L / total) + "% skipped)", GREEN));
+        }
+    }
+
     /*
      * Ported from MinecraftForge - author: LexManos <LexManos@gmail.com> - License: LGPLv2.1
      */
     private void listEntities(final CommandSender sender, final String[] args) {
         // help
         if (args.length < 1 || !args[0].toLowerCase(Locale.ROOT).equals("list")) {
-            sender.sendMessage(text("Use /paper entity [list] help for more information on a specific command", RED));
+            sender.sendMessage(text("Use /paper entity [list|tracker] help for more information on a specific command", RED));
             return;
         }
 
@@ -0,0 +1,96 @@
+package io.papermc.paper.command.subcommands;
+
+import ca.spottedleaf.moonrise.patches.starlight.chunk.StarlightChunk;
+import ca.spottedleaf.moonrise.patches.starlight.light.SWMRNibbleArray;
+import io.papermc.paper.command.CommandUtil;
+import io.papermc.paper.command.PaperSubcommand;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.PrimitiveIterator;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.chunk.LevelChunk;
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.command.CommandSender;
+import org.bukkit.craftbukkit.CraftWorld;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.framework.qual.DefaultQualifier;
+
+import static net.kyori.adventure.text.Component.text;
+import static net.kyori.adventure.text.format.NamedTextColor.GREEN;
+import static net.kyori.adventure.text.format.NamedTextColor.RED;
+
+@DefaultQualifier(NonNull.class)
+public final class LightCommand implements PaperSubcommand {
+
+    @Override
+    public boolean execute(final CommandSender sender, final String subCommand, final String[] args) {
+        if (args.length > 0 && args[0].toLowerCase(Locale.ROOT).equals("help")) {
+            sender.sendMessage(text("Use /paper light [world] to get how much memory the light data of the loaded chunks uses.", RED));
+            return true;
+        }
+
+        final List<World> worlds;
+        if (args.length > 0) {
+            final @Nullable World world = Bukkit.getWorld(args[0]);
+            if (world == null) {
+                sender.sendMessage(text("Could not find world " + args[0] + ".", RED));
+                return true;
+            }
+            worlds = List.of(world);
+        } else {
+            worlds = Bukkit.getWorlds();
+        }
+
+        for (final World world : worlds) {
+            this.sendUsage(sender, world.getName(), ((CraftWorld) world).getHandle());
+        }
+        return true;
+    }
+
+    @Override
+    public List<String> tabComplete(final CommandSender sender, final String subCommand, final String[] args) {
+        if (args.length == 1) {
+            final List<String> worlds = new ArrayList<>();
+            for (final World world : Bukkit.getWorlds()) {
+                worlds.add(world.getName());
+            }
+            return CommandUtil.getListMatchingLast(sender, args, worlds);
+        }
+        return Collections.emptyList();
+    }
+
+    private void sendUsage(final CommandSender sender, final String name, final ServerLevel level) {
+        int chunks = 0;
+        int nibbles = 0;
+        int shared = 0;
+        long bytes = 0L;
+        for (final PrimitiveIterator.OfLong iterator = level.getChunkSource().fullChunks.keyIterator(); iterator.hasNext(); ) {
+            final @Nullable LevelChunk chunk = level.getChunkSource().fullChunks.get(iterator.nextLong());
+            if (chunk == null) {
+                continue;
+            }
+            ++chunks;
+            for (final SWMRNibbleArray @Nullable [] layer : new SWMRNibbleArray[][] {((StarlightChunk) chunk).starlight$getBlockNibbles(), ((StarlightChunk) chunk).starlight$getSkyNibbles()}) {
+                if (layer == null) {
+                    continue;
+                }
+                for (final SWMRNibbleArray nibble : layer) {
+                    if (nibble == null || nibble.isNullNibbleVisible()) {
+                        continue;
+                    }
+                    ++nibbles;
+                    if (nibble.isSharedVisible()) {
+                        ++shared;
+                    }
+                    bytes += nibble.getOwnedBytes();
+                }
+            }
+        }
+        sender.sendMessage(text(name + ": " + chunks + " chunks, " + nibbles + " light sections, " + shared + " of them sharing uniform data, "
+            + String.format(Locale.ROOT, "%.1f", bytes / (1024.0 * 1024.0)) + " MiB of light data", GREEN));
+    }
+}
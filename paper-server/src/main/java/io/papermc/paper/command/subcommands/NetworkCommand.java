@@ -0,0 +1,88 @@
+package io.papermc.paper.command.subcommands;
+
+import io.papermc.paper.command.CommandUtil;
+import io.papermc.paper.command.PaperSubcommand;
+import io.papermc.paper.configuration.GlobalConfiguration;
+import io.papermc.paper.network.PacketFlushMetrics;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import org.bukkit.Bukkit;
+import org.bukkit.command.CommandSender;
+import org.bukkit.craftbukkit.entity.CraftPlayer;
+import org.bukkit.entity.Player;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.framework.qual.DefaultQualifier;
+
+import static net.kyori.adventure.text.Component.text;
+import static net.kyori.adventure.text.format.NamedTextColor.GREEN;
+import static net.kyori.adventure.text.format.NamedTextColor.RED;
+import static net.kyori.adventure.text.format.NamedTextColor.YELLOW;
+
+@DefaultQualifier(NonNull.class)
+public final class NetworkCommand implements PaperSubcommand {
+    private static final int MAX_LISTED_PLAYERS = 10;
+
+    @Override
+    public boolean execute(final CommandSender sender, final String subCommand, final String[] args) {
+        if (args.length > 0 && args[0].toLowerCase(Locale.ROOT).equals("help")) {
+            sender.sendMessage(text("Use /paper network [player] to get how many packets and bytes are written per coalesced flush.", RED));
+            return true;
+        }
+        if (!GlobalConfiguration.get().misc.coalescePacketWrites) {
+            sender.sendMessage(text("Packet write coalescing is disabled, flushes are only counted while it is enabled.", YELLOW));
+        }
+
+        if (args.length > 0) {
+            final @Nullable Player player = Bukkit.getPlayerExact(args[0]);
+            if (player == null) {
+                sender.sendMessage(text("Could not find player " + args[0] + ".", RED));
+                return true;
+            }
+            this.sendMetrics(sender, player.getName(), metrics(player));
+            return true;
+        }
+
+        final List<? extends Player> players = Bukkit.getOnlinePlayers().stream()
+            .sorted(Comparator.comparingDouble((Player player) -> metrics(player).averageBytesPerFlush()).reversed())
+            .toList();
+        long flushes = 0L;
+        long packets = 0L;
+        long bytes = 0L;
+        for (final Player player : players) {
+            final PacketFlushMetrics metrics = metrics(player);
+            flushes += metrics.flushes();
+            packets += metrics.packets();
+            bytes += metrics.bytes();
+        }
+        sender.sendMessage(text("All players: " + flushes + " flushes, " + format(flushes == 0L ? 0.0 : (double) packets / flushes) + " packets and "
+            + format(flushes == 0L ? 0.0 : (double) bytes / flushes) + " bytes per flush", GREEN));
+        for (final Player player : players.subList(0, Math.min(players.size(), MAX_LISTED_PLAYERS))) {
+            this.sendMetrics(sender, player.getName(), metrics(player));
+        }
+        return true;
+    }
+
+    @Override
+    public List<String> tabComplete(final CommandSender sender, final String subCommand, final String[] args) {
+        if (args.length == 1) {
+            return CommandUtil.getListMatchingLast(sender, args, Bukkit.getOnlinePlayers().stream().map(Player::getName).toList());
+        }
+        return Collections.emptyList();
+    }
+
+    private void sendMetrics(final CommandSender sender, final String name, final PacketFlushMetrics metrics) {
+        sender.sendMessage(text(name + ": " + metrics.flushes() + " flushes, " + format(metrics.averagePacketsPerFlush()) + " packets (max " + metrics.maxPacketsPerFlush()
+            + ") and " + format(metrics.averageBytesPerFlush()) + " bytes (max " + metrics.maxBytesPerFlush() + ") per flush", GREEN));
+    }
+
+    private static PacketFlushMetrics metrics(final Player player) {
+        return ((CraftPlayer) player).getHandle().connection.connection.flushMetrics;
+    }
+
+    private static String format(final double value) {
+        return String.format(Locale.ROOT, "%.1f", value);
+    }
+}
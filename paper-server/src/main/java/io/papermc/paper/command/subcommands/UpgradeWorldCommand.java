@@ -0,0 +1,80 @@
+package io.papermc.paper.command.subcommands;
+
+import io.papermc.paper.command.CommandUtil;
+import io.papermc.paper.command.PaperSubcommand;
+import io.papermc.paper.world.upgrade.OnlineWorldUpgrader;
+import java.util.List;
+import java.util.Locale;
+import net.minecraft.server.level.ServerLevel;
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+import org.bukkit.craftbukkit.CraftWorld;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.framework.qual.DefaultQualifier;
+
+import static net.kyori.adventure.text.Component.text;
+import static net.kyori.adventure.text.format.NamedTextColor.GREEN;
+import static net.kyori.adventure.text.format.NamedTextColor.RED;
+import static net.kyori.adventure.text.format.NamedTextColor.YELLOW;
+
+@DefaultQualifier(NonNull.class)
+public final class UpgradeWorldCommand implements PaperSubcommand {
+    private static final String USAGE = "Usage: /paper upgradeworld <start|stop|status> <world>";
+
+    @Override
+    public boolean execute(final CommandSender sender, final String subCommand, final String[] args) {
+        if (args.length != 2) {
+            sender.sendMessage(text(USAGE, RED));
+            return true;
+        }
+        final @Nullable World world = Bukkit.getWorld(args[1]);
+        if (world == null) {
+            sender.sendMessage(text("Could not find world " + args[1] + ".", RED));
+            return true;
+        }
+        final ServerLevel level = ((CraftWorld) world).getHandle();
+        final @Nullable OnlineWorldUpgrader running = OnlineWorldUpgrader.get(level);
+
+        switch (args[0].toLowerCase(Locale.ROOT)) {
+            case "start" -> {
+                final @Nullable OnlineWorldUpgrader upgrader = OnlineWorldUpgrader.start(level);
+                if (upgrader == null) {
+                    sender.sendMessage(text("World " + world.getName() + " is already being upgraded", RED));
+                } else {
+                    Command.broadcastCommandMessage(sender, text("Started upgrading the chunks of " + world.getName() + " in the background", YELLOW));
+                }
+            }
+            case "stop" -> {
+                if (running == null) {
+                    sender.sendMessage(text("World " + world.getName() + " is not being upgraded", RED));
+                } else {
+                    running.stop();
+                    Command.broadcastCommandMessage(sender, text("Stopping the upgrade of " + world.getName() + ", it resumes with the next start", YELLOW));
+                }
+            }
+            case "status" -> {
+                if (running == null) {
+                    sender.sendMessage(text("World " + world.getName() + " is not being upgraded", YELLOW));
+                } else {
+                    sender.sendMessage(text("Upgrading " + world.getName() + ": " + running.getStatus(), GREEN));
+                }
+            }
+            default -> sender.sendMessage(text(USAGE, RED));
+        }
+        return true;
+    }
+
+    @Override
+    public List<String> tabComplete(final CommandSender sender, final String subCommand, final String[] args) {
+        if (args.length == 1) {
+            return CommandUtil.getListMatchingLast(sender, args, "start", "stop", "status");
+        }
+        if (args.length == 2) {
+            return CommandUtil.getListMatchingLast(sender, args, Bukkit.getWorlds().stream().map(World::getName).toList());
+        }
+        return List.of();
+    }
+}
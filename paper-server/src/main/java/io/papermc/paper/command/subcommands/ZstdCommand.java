@@ -0,0 +1,166 @@
+package io.papermc.paper.command.subcommands;
+
+import io.papermc.paper.command.CommandUtil;
+import io.papermc.paper.command.PaperSubcommand;
+import io.papermc.paper.world.storage.ZstdRegionCompression;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
+import net.minecraft.core.registries.Registries;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.world.level.Level;
+import org.bukkit.Bukkit;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.framework.qual.DefaultQualifier;
+
+import static net.kyori.adventure.text.Component.text;
+import static net.kyori.adventure.text.format.NamedTextColor.GREEN;
+import static net.kyori.adventure.text.format.NamedTextColor.RED;
+import static net.kyori.adventure.text.format.NamedTextColor.YELLOW;
+
+@DefaultQualifier(NonNull.class)
+public final class ZstdCommand implements PaperSubcommand {
+    private static final List<String> REGION_FOLDERS = List.of("region", "poi", "entities");
+
+    @Override
+    public boolean execute(final CommandSender sender, final String subCommand, final String[] args) {
+        if (args.length != 2) {
+            sender.sendMessage(text("Usage: /paper zstd <train|recompress> <world>", RED));
+            return true;
+        }
+        final String worldName = args[1];
+        final Path worldFolder = Bukkit.getWorldContainer().toPath().resolve(worldName);
+        if (!Files.isDirectory(worldFolder)) {
+            sender.sendMessage(text("World folder '" + worldName + "' does not exist", RED));
+            return true;
+        }
+
+        switch (args[0].toLowerCase(Locale.ROOT)) {
+            case "train" -> this.start(sender, "Zstd dictionary training for " + worldName, () -> this.train(sender, worldFolder));
+            case "recompress" -> {
+                if (Bukkit.getWorld(worldName) != null) {
+                    sender.sendMessage(text("World '" + worldName + "' must be unloaded before it can be recompressed", RED));
+                    return true;
+                }
+                this.start(sender, "Zstd recompression of " + worldName, () -> this.recompress(sender, worldName, worldFolder));
+            }
+            default -> sender.sendMessage(text("Usage: /paper zstd <train|recompress> <world>", RED));
+        }
+        return true;
+    }
+
+    @Override
+    public List<String> tabComplete(final CommandSender sender, final String subCommand, final String[] args) {
+        if (args.length == 1) {
+            return CommandUtil.getListMatchingLast(sender, args, "train", "recompress");
+        }
+        if (args.length == 2) {
+            // only unloaded worlds can be recompressed
+            final boolean unloadedOnly = args[0].equalsIgnoreCase("recompress");
+            return CommandUtil.getListMatchingLast(sender, args, findWorldFolders().stream()
+                .filter((final String worldName) -> !unloadedOnly || Bukkit.getWorld(worldName) == null)
+                .toList());
+        }
+        return List.of();
+    }
+
+    private void start(final CommandSender sender, final String name, final Runnable task) {
+        Command.broadcastCommandMessage(sender, text("Starting " + name + ", this may take a while", YELLOW));
+        final Thread thread = new Thread(task, "Paper Zstd Region Tool");
+        thread.setDaemon(true);
+        thread.setUncaughtExceptionHandler((final Thread t, final Throwable thr) -> {
+            MinecraftServer.LOGGER.error("{} failed", name, thr);
+            this.reply(sender, text(name + " failed, see server log for details", RED));
+        });
+        thread.start();
+    }
+
+    private void train(final CommandSender sender, final Path worldFolder) {
+        for (final Path folder : findRegionFolders(worldFolder)) {
+            try {
+                final int samples = ZstdRegionCompression.train(folder);
+                if (samples == 0) {
+                    this.reply(sender, text("Not enough chunks in " + folder + " to train a dictionary", YELLOW));
+                } else {
+                    this.reply(sender, text("Trained a new dictionary from " + samples + " chunks in " + folder, GREEN));
+                }
+            } catch (final IOException ex) {
+                MinecraftServer.LOGGER.error("Failed to train zstd dictionary for {}", folder, ex);
+                this.reply(sender, text("Failed to train a dictionary for " + folder + ", see server log for details", RED));
+            }
+        }
+    }
+
+    private void recompress(final CommandSender sender, final String worldName, final Path worldFolder) {
+        for (final Path folder : findRegionFolders(worldFolder)) {
+            if (Bukkit.getWorld(worldName) != null) {
+                this.reply(sender, text("World '" + worldName + "' was loaded during recompression, stopping", RED));
+                return;
+            }
+            try {
+                final ZstdRegionCompression.RecompressResult result = ZstdRegionCompression.recompress(
+                    worldName, dimensionOf(worldFolder, folder), folder, folder.getFileName().toString().equals("region") ? "chunk" : folder.getFileName().toString()
+                );
+                this.reply(sender, text(String.format(
+                    Locale.ROOT, "Recompressed %d chunks in %d region files in %s: %.1f MiB -> %.1f MiB",
+                    result.chunks(), result.regions(), folder, result.bytesBefore() / (1024.0 * 1024.0), result.bytesAfter() / (1024.0 * 1024.0)
+                ), GREEN));
+                if (result.failedRegions() != 0) {
+                    this.reply(sender, text(result.failedRegions() + " region files in " + folder + " could not be fully read and were left untouched", RED));
+                }
+            } catch (final IOException ex) {
+                MinecraftServer.LOGGER.error("Failed to recompress {}", folder, ex);
+                this.reply(sender, text("Failed to recompress " + folder + ", see server log for details", RED));
+            }
+        }
+    }
+
+    private void reply(final CommandSender sender, final net.kyori.adventure.text.Component message) {
+        MinecraftServer.getServer().execute(() -> Command.broadcastCommandMessage(sender, message));
+    }
+
+    private static List<String> findWorldFolders() {
+        try (final Stream<Path> folders = Files.list(Bukkit.getWorldContainer().toPath())) {
+            return folders.filter((final Path path) -> Files.isRegularFile(path.resolve("level.dat")))
+                .map((final Path path) -> path.getFileName().toString())
+                .toList();
+        } catch (final IOException ex) {
+            return List.of();
+        }
+    }
+
+    // mirrors LevelStorageSource#getStorageFolder
+    private static ResourceKey<Level> dimensionOf(final Path worldFolder, final Path regionFolder) {
+        final Path dimensionFolder = worldFolder.relativize(regionFolder.getParent() == null ? worldFolder : regionFolder.getParent());
+        if (dimensionFolder.getNameCount() == 3 && dimensionFolder.getName(0).toString().equals("dimensions")) {
+            final ResourceLocation location = ResourceLocation.tryBuild(dimensionFolder.getName(1).toString(), dimensionFolder.getName(2).toString());
+            if (location != null) {
+                return ResourceKey.create(Registries.DIMENSION, location);
+            }
+        }
+        return switch (dimensionFolder.toString()) {
+            case "DIM-1" -> Level.NETHER;
+            case "DIM1" -> Level.END;
+            default -> Level.OVERWORLD;
+        };
+    }
+
+    private static List<Path> findRegionFolders(final Path worldFolder) {
+        // covers the overworld layout as well as DIM-1/region and dimensions/<namespace>/<path>/region
+        try (final Stream<Path> folders = Files.walk(worldFolder, 4)) {
+            return folders.filter(Files::isDirectory)
+                .filter((final Path path) -> REGION_FOLDERS.contains(path.getFileName().toString()))
+                .toList();
+        } catch (final IOException ex) {
+            MinecraftServer.LOGGER.error("Failed to list region folders of {}", worldFolder, ex);
+            return List.of();
+        }
+    }
+}
@@ -73,6 +73,12 @@ public class GlobalConfiguration extends ConfigurationPart {
             "Set to 0 to let the server configure it automatically per player, or set it to -1 to disable the limit."
         )
         public int playerMaxConcurrentChunkGenerates = 0;
+
+        @Comment(
+            "How strongly chunks in the direction a fast travelling player moves, such as when flying with an elytra, are loaded, " +
+            "generated and sent before the chunks behind them. Set to 0 to order chunks by distance only, up to 1."
+        )
+        public double playerMovementChunkBias = 0.0;
     }
     static void set(final GlobalConfiguration instance) {
         GlobalConfiguration.instance = instance;
@@ -182,7 +188,7 @@ public class GlobalConfiguration extends ConfigurationPart {
         public boolean allowHeadlessPistons = false;
         @Comment("This setting controls if the vanilla damage tick should be skipped if damage was blocked via a shield.")
         public boolean skipVanillaDamageTickWhenShieldBlocked = false;
-        @Comment("This setting controls what compression format is used for region files.")
+        @Comment("This setting controls what compression format is used for region files. ZSTD uses the per-world dictionary created by /paper zstd when one exists.")
         public CompressionFormat compressionFormat = CompressionFormat.ZLIB;
         @Comment("This setting controls if equipment should be updated when handling certain player actions.")
         public boolean updateEquipmentOnPlayerActions = true;
@@ -191,7 +197,8 @@ public class GlobalConfiguration extends ConfigurationPart {
             GZIP,
             ZLIB,
             LZ4,
-            NONE
+            NONE,
+            ZSTD
         }
     }
 
@@ -225,6 +232,8 @@ public class GlobalConfiguration extends ConfigurationPart {
         public int ioThreads = -1;
         public int workerThreads = -1;
         public String genParallelism = "default";
+        @Comment("The maximum number of queued I/O tasks for a single region file which are executed together. Chunk writes among them are written with a single vectored write and header update. Set to 1 to write every chunk separately.")
+        public int regionWriteBatchSize = 64;
 
         @PostProcess
         private void postProcess() {
@@ -248,6 +257,32 @@ public class GlobalConfiguration extends ConfigurationPart {
         }
     }
 
+    @SuppressWarnings("unused") // used in postProcess
+    public AsyncTasks asyncTasks;
+
+    public class AsyncTasks extends ConfigurationPart {
+        @Comment("Whether asynchronous plugin tasks of the Bukkit and the async scheduler run on virtual threads instead of platform threads. Blocking calls in such tasks then no longer occupy a thread each.")
+        public boolean virtualThreads = false;
+        @Comment("The amount of carrier threads running virtual threads, -1 for the number of processors. Only applied on startup.")
+        public int carrierThreads = -1;
+        @Comment("The maximum amount of asynchronous tasks of a single plugin running at the same time, further tasks wait for one to finish. -1 for no limit.")
+        public int perPluginConcurrencyLimit = -1;
+
+        @PostProcess
+        private void postProcess() {
+            io.papermc.paper.threadedregions.scheduler.PluginTaskExecutor.configure(this.virtualThreads, this.carrierThreads, this.perPluginConcurrencyLimit);
+        }
+    }
+
+    public EntityTracker entityTracker;
+
+    public class EntityTracker extends ConfigurationPart {
+        @Comment("Whether the movement, data and attribute packets of tracked entities are created on the worker threads of the chunk system in parallel. The packets are still sent on the main thread, in the same order as without this option.")
+        public boolean parallelPacketGeneration = false;
+        @Comment("The minimum amount of tracked entities in a world before their packets are created in parallel.")
+        public int parallelThreshold = 256;
+    }
+
     public ItemValidation itemValidation;
 
     public class ItemValidation extends ConfigurationPart {
@@ -353,6 +388,10 @@ public class GlobalConfiguration extends ConfigurationPart {
         public boolean useDimensionTypeForCustomSpawners = false;
         public boolean strictAdvancementDimensionCheck = false;
         public IntOr.Default compressionLevel = IntOr.Default.USE_DEFAULT;
+        @Comment("Whether the packets the main thread sends to a player during a tick are written to the connection with a single task after the tick and flushed once, instead of scheduling a task on the network thread for every packet.")
+        public boolean coalescePacketWrites = false;
+        @Comment("Whether packets broadcast to several players are encoded and compressed once per compression threshold and locale, instead of once per player.")
+        public boolean shareBroadcastPacketEncoding = false;
         @Comment("Defines the leniency distance added on the server to the interaction range of a player when validating interact packets.")
         public DoubleOr.Default clientInteractionLeniencyDistance = DoubleOr.Default.USE_DEFAULT;
         @Comment("Defines how many orbs groups can exist in an area.")
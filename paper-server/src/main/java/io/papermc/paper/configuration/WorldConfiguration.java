@@ -4,6 +4,7 @@ import com.google.common.collect.HashBasedTable;
 import com.google.common.collect.Table;
 import com.mojang.logging.LogUtils;
 import io.papermc.paper.FeatureHooks;
+import io.papermc.paper.configuration.constraint.Constraints;
 import io.papermc.paper.configuration.legacy.MaxEntityCollisionsInitializer;
 import io.papermc.paper.configuration.legacy.RequiresSpigotInitialization;
 import io.papermc.paper.configuration.mapping.MergeMap;
@@ -128,6 +129,8 @@ public class WorldConfiguration extends ConfigurationPart {
                 //</editor-fold>
             );
             public List<Block> replacementBlocks = List.of(Blocks.STONE, Blocks.OAK_PLANKS, Blocks.DEEPSLATE);
+            @Comment("Computes which blocks to obfuscate for a whole layer of a chunk section at once, using bitsets of 64 blocks per long, instead of block by block. The obfuscated chunks are the same.")
+            public boolean bitsetEngine = false;
         }
     }
 
@@ -159,6 +162,22 @@ public class WorldConfiguration extends ConfigurationPart {
             public boolean tick = true;
         }
 
+        public AdaptiveActivationRange adaptiveActivationRange;
+
+        public class AdaptiveActivationRange extends ConfigurationPart {
+            @Comment("Shrinks the entity activation ranges of spigot.yml and wakes up inactive entities less often while ticking the entities of this world takes longer than the entity tick budget, and grows them back once it is below the budget again.")
+            public boolean enabled = false;
+            @Comment("The time in milliseconds ticking the entities of this world may take per tick.")
+            public double entityTickBudget = 15.0;
+            @Comment("The smallest fraction of the configured activation ranges the ranges are shrunk to, between 0 and 1.")
+            public double minimumScale = 0.25;
+            @Comment("Activation ranges are not shrunk below this amount of blocks, or below the configured range if it is smaller.")
+            public int minimumRange = 8;
+            @Comment("The amount of ticks the entity tick time is averaged over before the ranges are adjusted.")
+            @Constraints.Min(1)
+            public int adjustInterval = 20;
+        }
+
         public Sniffer sniffer;
 
         public class Sniffer extends ConfigurationPart {
@@ -484,6 +503,10 @@ public class WorldConfiguration extends ConfigurationPart {
         public boolean cooldownWhenFull = true;
         public boolean disableMoveEvent = false;
         public boolean ignoreOccludingBlocks = false;
+        @Comment("Stops ticking hoppers which cannot move any item until a neighbouring block, container or item changes. Plugins editing containers without marking them as changed will not wake sleeping hoppers.")
+        public boolean sleepWhenIdle = false;
+        @Comment("Ticks chains of hoppers pushing into each other together, the last hopper first. While nothing listens to InventoryMoveItemEvent, moves between hoppers of the same chain are reported by a single HopperPipelineTransferEvent per chain and tick.")
+        public boolean pipelines = false;
     }
 
     public Collisions collisions;
@@ -515,6 +538,35 @@ public class WorldConfiguration extends ConfigurationPart {
             map.put(EntityType.SMALL_FIREBALL, -1);
         });
         public boolean flushRegionsOnSave = false;
+        public RegionFileBackends regionFileBackend;
+
+        public class RegionFileBackends extends ConfigurationPart {
+            @Comment("The region file implementation used for chunk, poi and entity data. MEMORY_MAPPED maps the region header and sectors into memory and allows the io threads to access the same region file concurrently.")
+            public RegionFileBackend chunkData = RegionFileBackend.FILE_CHANNEL;
+            public RegionFileBackend poiData = RegionFileBackend.FILE_CHANNEL;
+            public RegionFileBackend entityData = RegionFileBackend.FILE_CHANNEL;
+
+            public RegionFileBackend get(final ca.spottedleaf.moonrise.patches.chunk_system.io.MoonriseRegionFileIO.RegionFileType type) {
+                return switch (type) {
+                    case CHUNK_DATA -> this.chunkData;
+                    case POI_DATA -> this.poiData;
+                    case ENTITY_DATA -> this.entityData;
+                };
+            }
+
+            public enum RegionFileBackend {
+                FILE_CHANNEL, MEMORY_MAPPED
+            }
+        }
+
+        public ChunkPacketCache chunkPacketCache;
+
+        public class ChunkPacketCache extends ConfigurationPart {
+            @Comment("Whether the chunk packet of a chunk is built (and obfuscated by Anti-Xray) once and shared by every player it is sent to, until the chunk changes. Every cached chunk keeps up to two packets and their encoded bytes in memory. Do not enable this if a plugin modifies chunk packets per player.")
+            public boolean enabled = false;
+            @Comment("The maximum age in ticks of a cached chunk packet. This limits how long changes which bypass block and light updates, such as direct section writes by plugins, can go unnoticed.")
+            public int maxAgeTicks = 600;
+        }
 
         @PostProcess
         private void postProcess() {
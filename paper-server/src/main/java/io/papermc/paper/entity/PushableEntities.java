@@ -0,0 +1,73 @@
+package io.papermc.paper.entity;
+
+import ca.spottedleaf.moonrise.common.PlatformHooks;
+import ca.spottedleaf.moonrise.patches.chunk_system.level.ChunkSystemLevel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.entity.EntitySelector;
+import net.minecraft.world.entity.LivingEntity;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.phys.AABB;
+import org.jspecify.annotations.NullMarked;
+
+/**
+ * Collects the entities a living entity pushes without testing every entity of a crowded pile.
+ * <p>
+ * {@link LivingEntity#pushEntities()} pushes at most {@code maxEntityCollisions} entities from the front of the list,
+ * and only needs to know whether at least {@code maxEntityCramming} of the entities are not passengers. Once the
+ * front of the list holds enough entities to decide both, the rest of the entities are never looked at, so the
+ * collected list behaves exactly like the full one.
+ */
+@NullMarked
+public final class PushableEntities {
+
+    private PushableEntities() {
+    }
+
+    /**
+     * Same as {@link Level#getPushableEntities(Entity, AABB)}, but stops collecting once the result of
+     * {@link LivingEntity#pushEntities()} is decided.
+     *
+     * @param entity the pushing entity
+     * @param maxCramming the max entity cramming game rule
+     * @param maxCollisions the max entity collisions
+     * @return the entities to push
+     */
+    public static List<Entity> collect(final LivingEntity entity, final int maxCramming, final int maxCollisions) {
+        final Level level = entity.level();
+        final AABB box = entity.getBoundingBox();
+        final int limit = Math.max(Math.max(maxCramming, maxCollisions), 0);
+        if (limit == 0) {
+            return new ArrayList<>();
+        }
+
+        final Predicate<Entity> predicate = EntitySelector.pushableBy(entity);
+        final List<Entity> ret = new ArrayList<>(Math.min(limit, 16));
+        ((ChunkSystemLevel) level).moonrise$getEntityLookup().getEntities(entity, box, ret, predicate, limit);
+
+        if (ret.size() < limit) {
+            // every entity was collected
+            PlatformHooks.get().addToGetEntities(level, entity, box, predicate, ret);
+            return ret;
+        }
+
+        if (maxCramming > 0 && countNonPassengers(ret) < maxCramming) {
+            // passengers do not count towards cramming, so the entities left out may still decide it
+            return level.getPushableEntities(entity, box);
+        }
+
+        return ret;
+    }
+
+    private static int countNonPassengers(final List<Entity> entities) {
+        int count = 0;
+        for (int i = 0, len = entities.size(); i < len; ++i) {
+            if (!entities.get(i).isPassenger()) {
+                ++count;
+            }
+        }
+        return count;
+    }
+}
@@ -23,6 +23,16 @@ public enum ActivationType {
 
     AABB boundingBox = new AABB(0, 0, 0, 0, 0, 0);
 
+    /**
+     * Returns the activation type of the given API activation category.
+     *
+     * @param category activation category
+     * @return activation type
+     */
+    public static ActivationType fromCategory(final ActivationCategory category) {
+        return ActivationType.valueOf(category.name());
+    }
+
     /**
      * Returns the activation type for the given entity.
      *
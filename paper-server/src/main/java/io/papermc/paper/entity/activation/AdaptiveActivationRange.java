@@ -0,0 +1,159 @@
+package io.papermc.paper.entity.activation;
+
+import io.papermc.paper.configuration.WorldConfiguration;
+import net.minecraft.util.Mth;
+import net.minecraft.world.level.Level;
+import org.jspecify.annotations.NullMarked;
+import org.spigotmc.SpigotWorldConfig;
+
+/**
+ * Adapts the activation ranges of a level to the time its entities take to tick.
+ * <p>
+ * The entity tick time of the level is averaged over the configured interval. While the average is above the
+ * budget, the activation ranges of every activation type are scaled down, and inactive entities are woken up less
+ * often by the same factor. Once it is clearly below the budget, they grow back towards the ranges and intervals
+ * configured in {@code spigot.yml}. Ranges of 0 or less, which keep entities of the type always active, are never
+ * changed.
+ */
+@NullMarked
+public final class AdaptiveActivationRange {
+
+    // the ranges only grow while below this fraction of the budget, so they do not flip between two sizes
+    static final double GROW_THRESHOLD = 0.8;
+    static final double GROW_FACTOR = 1.05;
+    // a single lag spike shrinks the ranges by at most this factor
+    static final double MAX_SHRINK_FACTOR = 0.75;
+
+    private final Level level;
+    private double scale = 1.0;
+    private long tickTimeSum;
+    private int ticks;
+    private double averageTickTime;
+
+    public AdaptiveActivationRange(final Level level) {
+        this.level = level;
+    }
+
+    /**
+     * Records the time the entities of the level took to tick during this tick, adjusting the ranges at the end of
+     * every interval.
+     *
+     * @param tickTime the time spent activating and ticking entities, in nanoseconds
+     */
+    public void tick(final long tickTime) {
+        final WorldConfiguration.Entities.AdaptiveActivationRange config = this.level.paperConfig().entities.adaptiveActivationRange;
+        if (!config.enabled) {
+            this.scale = 1.0;
+            this.tickTimeSum = 0L;
+            this.ticks = 0;
+            this.averageTickTime = 0.0;
+            return;
+        }
+
+        this.tickTimeSum += tickTime;
+        if (++this.ticks < config.adjustInterval) {
+            return;
+        }
+
+        this.averageTickTime = (double) this.tickTimeSum / (double) this.ticks / 1.0E6;
+        this.tickTimeSum = 0L;
+        this.ticks = 0;
+        this.scale = adjustScale(this.scale, this.averageTickTime, config.entityTickBudget, config.minimumScale);
+    }
+
+    /**
+     * Gets the fraction of the configured activation ranges currently used.
+     *
+     * @return the scale, between the configured minimum scale and 1
+     */
+    public double getScale() {
+        return this.scale;
+    }
+
+    /**
+     * Gets the entity tick time averaged over the last completed interval.
+     *
+     * @return the average entity tick time in milliseconds, or 0 if adapting the ranges is disabled
+     */
+    public double getAverageTickTime() {
+        return this.averageTickTime;
+    }
+
+    /**
+     * Gets the activation range currently used for the given activation type.
+     *
+     * @param type the activation type
+     * @return the activation range in blocks
+     */
+    public int getActivationRange(final ActivationType type) {
+        final int configured = configuredRange(this.level.spigotConfig, type);
+        if (this.scale >= 1.0) {
+            return configured;
+        }
+        return scaleRange(configured, this.scale, this.level.paperConfig().entities.adaptiveActivationRange.minimumRange);
+    }
+
+    /**
+     * Gets the amount of ticks an inactive entity of the given activation type currently has to be inactive before
+     * it may be woken up.
+     *
+     * @param type the activation type
+     * @return the wake-up interval in ticks, or -1 if inactive entities of the type are never woken up
+     */
+    public int getWakeUpInactiveEvery(final ActivationType type) {
+        final int configured = configuredWakeUpInactiveEvery(this.level.spigotConfig, type);
+        if (configured < 0 || this.scale >= 1.0) {
+            return configured;
+        }
+        return scaleInterval(configured, this.scale);
+    }
+
+    static double adjustScale(final double scale, final double averageTickTime, final double budget, final double minimumScale) {
+        final double minimum = Mth.clamp(minimumScale, 0.0, 1.0);
+        if (averageTickTime > budget) {
+            // the entities to tick grow with the area around the players, so with the square of the ranges
+            final double factor = Math.sqrt(Math.max(0.0, budget / averageTickTime));
+            return Math.max(minimum, scale * Math.max(MAX_SHRINK_FACTOR, factor));
+        }
+        if (averageTickTime < budget * GROW_THRESHOLD) {
+            return Math.min(1.0, scale * GROW_FACTOR);
+        }
+        return Mth.clamp(scale, minimum, 1.0);
+    }
+
+    static int scaleRange(final int range, final double scale, final int minimumRange) {
+        if (range <= 0) {
+            return range;
+        }
+        return Math.max(Math.min(range, minimumRange), (int) Math.ceil(range * scale));
+    }
+
+    static int scaleInterval(final int interval, final double scale) {
+        if (interval <= 0) {
+            return interval;
+        }
+        return (int) Math.min(Integer.MAX_VALUE, Math.ceil(interval / scale));
+    }
+
+    private static int configuredRange(final SpigotWorldConfig config, final ActivationType type) {
+        return switch (type) {
+            case WATER -> config.waterActivationRange;
+            case FLYING_MONSTER -> config.flyingMonsterActivationRange;
+            case VILLAGER -> config.villagerActivationRange;
+            case MONSTER -> config.monsterActivationRange;
+            case ANIMAL -> config.animalActivationRange;
+            case RAIDER -> config.raiderActivationRange;
+            case MISC -> config.miscActivationRange;
+        };
+    }
+
+    private static int configuredWakeUpInactiveEvery(final SpigotWorldConfig config, final ActivationType type) {
+        return switch (type) {
+            case VILLAGER -> config.wakeUpInactiveVillagersEvery;
+            case ANIMAL -> config.wakeUpInactiveAnimalsEvery;
+            case FLYING_MONSTER -> config.wakeUpInactiveFlyingEvery;
+            case MONSTER, RAIDER -> config.wakeUpInactiveMonstersEvery;
+            case WATER, MISC -> -1;
+        };
+    }
+}
@@ -0,0 +1,98 @@
+package io.papermc.paper.entity.tracker;
+
+import ca.spottedleaf.concurrentutil.executor.thread.PrioritisedThreadPool;
+import ca.spottedleaf.concurrentutil.util.Priority;
+import ca.spottedleaf.moonrise.common.util.MoonriseCommon;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.IntConsumer;
+import org.jspecify.annotations.NullMarked;
+
+/**
+ * Runs the per-entity work of the entity tracker on the worker threads of the chunk system. The calling thread
+ * takes part in the work and returns once all of it is done, so the state of the world does not change while the
+ * workers read it.
+ */
+@NullMarked
+public final class ParallelTrackerTasks {
+
+    private static final int BATCH_SIZE = 32;
+    private static final PrioritisedThreadPool.ExecutorGroup.ThreadPoolExecutor EXECUTOR = MoonriseCommon.WORKER_POOL
+        .createExecutorGroup(MoonriseCommon.SERVER_DIVISION, 0)
+        .createExecutor(-1, MoonriseCommon.WORKER_QUEUE_HOLD_TIME, 0);
+
+    private ParallelTrackerTasks() {
+    }
+
+    /**
+     * Runs the task for every index from {@code 0} to {@code count - 1}, in parallel and in no particular order.
+     * The first exception thrown by the task is rethrown once all indices are processed.
+     *
+     * @param count the amount of indices
+     * @param task the task to run for each index
+     */
+    public static void run(final int count, final IntConsumer task) {
+        final Batches batches = new Batches(count, task, Thread.currentThread());
+        final int helpers = Math.min((count - 1) / BATCH_SIZE, Runtime.getRuntime().availableProcessors() - 1);
+        for (int i = 0; i < helpers; ++i) {
+            EXECUTOR.queueTask(batches::work, Priority.HIGHEST);
+        }
+        batches.work();
+        batches.await();
+
+        final Throwable failure = batches.failure.get();
+        if (failure != null) {
+            if (failure instanceof final RuntimeException exception) {
+                throw exception;
+            }
+            if (failure instanceof final Error error) {
+                throw error;
+            }
+            throw new RuntimeException(failure);
+        }
+    }
+
+    private static final class Batches {
+
+        private final int count;
+        private final IntConsumer task;
+        private final Thread owner;
+        private final AtomicInteger next = new AtomicInteger();
+        private final AtomicInteger done = new AtomicInteger();
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        Batches(final int count, final IntConsumer task, final Thread owner) {
+            this.count = count;
+            this.task = task;
+            this.owner = owner;
+        }
+
+        void work() {
+            for (;;) {
+                final int start = this.next.getAndAdd(BATCH_SIZE);
+                if (start >= this.count) {
+                    return;
+                }
+                final int end = Math.min(this.count, start + BATCH_SIZE);
+                try {
+                    for (int i = start; i < end; ++i) {
+                        this.task.accept(i);
+                    }
+                } catch (final Throwable throwable) {
+                    this.failure.compareAndSet(null, throwable);
+                } finally {
+                    if (this.done.addAndGet(end - start) == this.count) {
+                        LockSupport.unpark(this.owner);
+                    }
+                }
+            }
+        }
+
+        void await() {
+            while (this.done.get() != this.count) {
+                LockSupport.park(this);
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package io.papermc.paper.entity.tracker;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import net.minecraft.network.protocol.Packet;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Holds the packets a tracked entity broadcasts while its changes are created off the main thread, so they can be
+ * broadcast on the main thread afterwards in the order they were created in.
+ */
+@NullMarked
+public final class TrackerPacketBuffer {
+
+    private final List<Packet<?>> packets = new ArrayList<>();
+    private final List<@Nullable List<UUID>> ignoredPlayers = new ArrayList<>();
+
+    public void add(final Packet<?> packet, final @Nullable List<UUID> ignoredPlayers) {
+        this.packets.add(packet);
+        this.ignoredPlayers.add(ignoredPlayers);
+    }
+
+    public boolean isEmpty() {
+        return this.packets.isEmpty();
+    }
+
+    /**
+     * Broadcasts the buffered packets and clears the buffer.
+     *
+     * @param broadcast broadcasts a packet to all players tracking the entity
+     * @param broadcastIgnorePlayers broadcasts a packet to all players tracking the entity, except for the ignored ones
+     */
+    public void replay(final Consumer<Packet<?>> broadcast, final BiConsumer<Packet<?>, List<UUID>> broadcastIgnorePlayers) {
+        for (int i = 0, len = this.packets.size(); i < len; ++i) {
+            final List<UUID> ignoredPlayers = this.ignoredPlayers.get(i);
+            if (ignoredPlayers == null) {
+                broadcast.accept(this.packets.get(i));
+            } else {
+                broadcastIgnorePlayers.accept(this.packets.get(i), ignoredPlayers);
+            }
+        }
+        this.packets.clear();
+        this.ignoredPlayers.clear();
+    }
+}
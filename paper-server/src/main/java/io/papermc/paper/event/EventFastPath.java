@@ -0,0 +1,69 @@
+package io.papermc.paper.event;
+
+import io.papermc.paper.event.entity.EntityMoveEvent;
+import java.util.List;
+import org.bukkit.event.Event;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.block.BlockPhysicsEvent;
+import org.bukkit.event.block.BlockRedstoneEvent;
+import org.bukkit.event.inventory.InventoryMoveItemEvent;
+import org.jspecify.annotations.NullMarked;
+
+/**
+ * Guards the construction of high frequency events, so that events nothing listens to cost a single volatile read
+ * instead of an event object and its block, location and item mirrors.
+ * <pre>{@code
+ * if (EventFastPath.BLOCK_PHYSICS.shouldCall()) {
+ *     new BlockPhysicsEvent(...).callEvent();
+ * }
+ * }</pre>
+ * Every skipped event is counted, see {@code /paper dumplisteners}.
+ */
+@NullMarked
+public final class EventFastPath {
+
+    public static final EventFastPath BLOCK_PHYSICS = new EventFastPath(BlockPhysicsEvent.class, BlockPhysicsEvent.getHandlerList());
+    public static final EventFastPath BLOCK_REDSTONE = new EventFastPath(BlockRedstoneEvent.class, BlockRedstoneEvent.getHandlerList());
+    public static final EventFastPath ENTITY_MOVE = new EventFastPath(EntityMoveEvent.class, EntityMoveEvent.getHandlerList());
+    public static final EventFastPath INVENTORY_MOVE_ITEM = new EventFastPath(InventoryMoveItemEvent.class, InventoryMoveItemEvent.getHandlerList());
+
+    private static final List<EventFastPath> ALL = List.of(BLOCK_PHYSICS, BLOCK_REDSTONE, ENTITY_MOVE, INVENTORY_MOVE_ITEM);
+
+    private final Class<? extends Event> eventClass;
+    private final HandlerList handlers;
+    // racy, all guarded events are synchronous so this is only ever incremented by the main thread
+    private long skipped;
+
+    private EventFastPath(final Class<? extends Event> eventClass, final HandlerList handlers) {
+        this.eventClass = eventClass;
+        this.handlers = handlers;
+    }
+
+    /**
+     * Returns whether the event has to be created and called, counting it as skipped otherwise.
+     *
+     * @return whether any listener is registered for the event
+     */
+    public boolean shouldCall() {
+        if (this.handlers.hasListeners()) {
+            return true;
+        }
+        ++this.skipped;
+        return false;
+    }
+
+    public Class<? extends Event> eventClass() {
+        return this.eventClass;
+    }
+
+    /**
+     * {@return the amount of events which were not created because no listener was registered}
+     */
+    public long skipped() {
+        return this.skipped;
+    }
+
+    public static List<EventFastPath> all() {
+        return ALL;
+    }
+}
@@ -0,0 +1,80 @@
+package io.papermc.paper.network;
+
+import io.papermc.paper.configuration.WorldConfiguration;
+import net.minecraft.network.protocol.game.ClientboundLevelChunkWithLightPacket;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.chunk.LevelChunk;
+import net.minecraft.world.level.chunk.LevelChunkSection;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Caches the chunk packet of a chunk so that it is built, and obfuscated by Anti-Xray, once for every player it is
+ * sent to rather than once per player. Players which bypass Anti-Xray share a separate packet.
+ * <p>
+ * A cached packet is valid as long as the modification key of the chunk is unchanged. The key is the sum of the
+ * block change counters of the sections and the counter of this cache, which is bumped for light and block entity
+ * changes. Cached packets also keep their encoded form after the first encode, so every further connection copies
+ * the bytes instead of encoding the packet again. Outdated packets are dropped when the cache is invalidated, and
+ * when the chunk unloads.
+ * </p>
+ * Packets must be requested on the thread owning the chunk, {@link #invalidate()} may be called from any thread.
+ */
+@NullMarked
+public final class ChunkPacketCache {
+
+    private volatile int modificationCount; // bumped by light updates off-main
+    private volatile @Nullable CachedPacket obfuscated;
+    private volatile @Nullable CachedPacket plain;
+
+    private record CachedPacket(ClientboundLevelChunkWithLightPacket packet, long modificationKey, int createdTick) {
+    }
+
+    public static ClientboundLevelChunkWithLightPacket getPacket(final ServerLevel level, final LevelChunk chunk, final boolean modifyBlocks) {
+        final WorldConfiguration.Chunks.ChunkPacketCache config = level.paperConfig().chunks.chunkPacketCache;
+        if (!config.enabled) {
+            return new ClientboundLevelChunkWithLightPacket(chunk, level.getLightEngine(), null, null, modifyBlocks);
+        }
+        return chunk.chunkPacketCache.get(level, chunk, modifyBlocks, config.maxAgeTicks);
+    }
+
+    /**
+     * Drops the cached packets, for changes which do not go through {@link LevelChunkSection#setBlockState} or
+     * {@link LevelChunkSection#setBiome} and when the chunk unloads.
+     */
+    public void invalidate() {
+        ++this.modificationCount; // a lost increment still changes the key
+        // a packet cached concurrently by the owning thread is rejected by its key on the next request
+        this.obfuscated = null;
+        this.plain = null;
+    }
+
+    private long getModificationKey(final LevelChunk chunk) {
+        // the counters only ever increase, so any change results in a different sum
+        long ret = this.modificationCount;
+        for (final LevelChunkSection section : chunk.getSections()) {
+            ret += section.modificationCount;
+        }
+        return ret;
+    }
+
+    private ClientboundLevelChunkWithLightPacket get(final ServerLevel level, final LevelChunk chunk, final boolean modifyBlocks, final int maxAgeTicks) {
+        final long modificationKey = this.getModificationKey(chunk);
+        final int currentTick = MinecraftServer.currentTick;
+        final CachedPacket cached = modifyBlocks ? this.obfuscated : this.plain;
+        if (cached != null && cached.modificationKey() == modificationKey && currentTick - cached.createdTick() <= maxAgeTicks) {
+            return cached.packet();
+        }
+
+        final ClientboundLevelChunkWithLightPacket packet = new ClientboundLevelChunkWithLightPacket(chunk, level.getLightEngine(), null, null, modifyBlocks);
+        packet.cacheEncoded();
+        final CachedPacket created = new CachedPacket(packet, modificationKey, currentTick);
+        if (modifyBlocks) {
+            this.obfuscated = created;
+        } else {
+            this.plain = created;
+        }
+        return packet;
+    }
+}
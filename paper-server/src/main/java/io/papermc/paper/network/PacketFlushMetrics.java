@@ -0,0 +1,65 @@
+package io.papermc.paper.network;
+
+import org.jspecify.annotations.NullMarked;
+
+/**
+ * Counts the packets and bytes of the coalesced flushes of a connection. Flushes are recorded on the event loop of
+ * the connection, the values may be read from any thread and are then a snapshot which may be slightly out of date.
+ */
+@NullMarked
+public final class PacketFlushMetrics {
+
+    private volatile long flushes;
+    private volatile long packets;
+    private volatile long bytes;
+    private volatile int maxPackets;
+    private volatile long maxBytes;
+
+    /**
+     * Records a flush. Must only be called by the event loop of the connection.
+     *
+     * @param packets the amount of packets written before the flush
+     * @param bytes the amount of bytes the packets were encoded to
+     */
+    public void record(final int packets, final long bytes) {
+        this.flushes = this.flushes + 1;
+        this.packets = this.packets + packets;
+        this.bytes = this.bytes + bytes;
+        if (packets > this.maxPackets) {
+            this.maxPackets = packets;
+        }
+        if (bytes > this.maxBytes) {
+            this.maxBytes = bytes;
+        }
+    }
+
+    public long flushes() {
+        return this.flushes;
+    }
+
+    public long packets() {
+        return this.packets;
+    }
+
+    public long bytes() {
+        return this.bytes;
+    }
+
+    public int maxPacketsPerFlush() {
+        return this.maxPackets;
+    }
+
+    public long maxBytesPerFlush() {
+        return this.maxBytes;
+    }
+
+    public double averagePacketsPerFlush() {
+        final long flushes = this.flushes;
+        return flushes == 0L ? 0.0 : (double) this.packets / flushes;
+    }
+
+    public double averageBytesPerFlush() {
+        final long flushes = this.flushes;
+        return flushes == 0L ? 0.0 : (double) this.bytes / flushes;
+    }
+}
@@ -0,0 +1,156 @@
+package io.papermc.paper.network;
+
+import com.google.common.collect.MapMaker;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.DefaultByteBufHolder;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.papermc.paper.adventure.PaperAdventure;
+import io.papermc.paper.configuration.GlobalConfiguration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentMap;
+import net.minecraft.network.CompressionEncoder;
+import net.minecraft.network.protocol.BundlePacket;
+import net.minecraft.network.protocol.Packet;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Shares the encoded and compressed form of packets which are broadcast to several connections, so a packet is
+ * encoded and compressed once per compression threshold and locale instead of once per connection.
+ * <p>
+ * The first connection to encode a shared packet compresses it in the packet encoder and keeps the frame, every
+ * further connection with the same threshold and locale copies it instead. Compressed frames are sent on as
+ * {@link CompressedFrame}, which the compression encoder passes on unchanged. Frames are only used on connections
+ * whose compression encoder, or frame prepender without compression, directly follows the packet encoder, so
+ * handlers of plugins transforming the encoded bytes still see every packet. Encryption still runs per connection.
+ * </p>
+ * Frames are kept as unpooled heap buffers and are released with the packet by the garbage collector, so no reference
+ * counting crosses connections.
+ */
+@NullMarked
+public final class SharedPacketEncoding {
+
+    private static final ConcurrentMap<Packet<?>, Frames> SHARED = new MapMaker().weakKeys().makeMap();
+
+    private SharedPacketEncoding() {
+    }
+
+    /**
+     * Marks a packet as sent to several connections. Must be called before the packet is sent.
+     *
+     * @param packet the packet
+     * @param receivers the amount of connections the packet is sent to
+     */
+    public static void share(final Packet<?> packet, final int receivers) {
+        if (receivers < 2 || packet.isTerminal() || packet instanceof BundlePacket<?>
+            || !GlobalConfiguration.get().misc.shareBroadcastPacketEncoding) {
+            return;
+        }
+        SHARED.putIfAbsent(packet, new Frames());
+    }
+
+    /**
+     * Checks whether the packet encoder of a channel is directly followed by its compression encoder, or by its frame
+     * prepender without compression. Shared frames are only used on such channels, so handlers of plugins transforming
+     * the encoded bytes still see every packet. The result only changes when the pipeline is set up, so packet
+     * encoders check this once.
+     *
+     * @param context the context of the packet encoder
+     * @return whether shared frames can be used on the channel
+     */
+    public static boolean canUseFrames(final ChannelHandlerContext context) {
+        // outbound handlers run from the tail to the head of the pipeline
+        final List<String> names = context.pipeline().names();
+        final int index = names.indexOf(context.name());
+        final String next = index > 0 ? names.get(index - 1) : null;
+        return "compress".equals(next) || "prepender".equals(next);
+    }
+
+    /**
+     * {@return where the shared frames of a packet are read from and stored to for a channel, or {@code null} if the
+     * packet is not shared}
+     *
+     * @param context the context of the packet encoder, which must be able to {@link #canUseFrames use frames}
+     * @param packet the packet to encode
+     */
+    public static @Nullable Target target(final ChannelHandlerContext context, final Packet<?> packet) {
+        if (SHARED.isEmpty()) {
+            return null;
+        }
+        final Frames frames = SHARED.get(packet);
+        if (frames == null) {
+            return null;
+        }
+
+        final CompressionEncoder compression = (CompressionEncoder) context.pipeline().get("compress");
+        final Locale locale = context.channel().attr(PaperAdventure.LOCALE_ATTRIBUTE).get();
+        return new Target(frames, compression, compression == null ? -1 : compression.getThreshold(), locale);
+    }
+
+    public record Target(Frames frames, @Nullable CompressionEncoder compression, int threshold, @Nullable Locale locale) {
+
+        /**
+         * Copies the shared frame, if there is one, into a buffer of the channel.
+         *
+         * @param allocator the allocator of the channel
+         * @return the copied frame, or {@code null} if there is none yet
+         */
+        public @Nullable ByteBuf copy(final ByteBufAllocator allocator) {
+            final ByteBuf frame = this.frames.get(this.threshold, this.locale);
+            if (frame == null) {
+                return null;
+            }
+            final ByteBuf ret = allocator.ioBuffer(frame.readableBytes());
+            ret.writeBytes(frame, frame.readerIndex(), frame.readableBytes());
+            return ret;
+        }
+
+        /**
+         * Stores the readable bytes of a buffer as the frame for this target.
+         */
+        public void store(final ByteBuf frame) {
+            final byte[] bytes = new byte[frame.readableBytes()];
+            frame.getBytes(frame.readerIndex(), bytes);
+            this.frames.put(this.threshold, this.locale, Unpooled.wrappedBuffer(bytes).asReadOnly());
+        }
+    }
+
+    /**
+     * A frame which is already compressed. The compression encoder passes its content on unchanged, every other
+     * buffer it receives is compressed as usual. Since the marker travels with the frame, a frame which is dropped or
+     * fails to be written cannot affect the next packet.
+     */
+    public static final class CompressedFrame extends DefaultByteBufHolder {
+
+        public CompressedFrame(final ByteBuf frame) {
+            super(frame);
+        }
+    }
+
+    public static final class Frames {
+
+        private @Nullable Frame head;
+
+        synchronized @Nullable ByteBuf get(final int threshold, final @Nullable Locale locale) {
+            for (Frame frame = this.head; frame != null; frame = frame.next()) {
+                if (frame.threshold() == threshold && Objects.equals(frame.locale(), locale)) {
+                    return frame.bytes();
+                }
+            }
+            return null;
+        }
+
+        synchronized void put(final int threshold, final @Nullable Locale locale, final ByteBuf bytes) {
+            if (this.get(threshold, locale) == null) {
+                this.head = new Frame(threshold, locale, bytes, this.head);
+            }
+        }
+    }
+
+    private record Frame(int threshold, @Nullable Locale locale, ByteBuf bytes, @Nullable Frame next) {
+    }
+}
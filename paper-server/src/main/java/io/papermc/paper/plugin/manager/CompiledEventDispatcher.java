@@ -0,0 +1,193 @@
+package io.papermc.paper.plugin.manager;
+
+import java.lang.constant.ConstantDescs;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.List;
+import org.bukkit.event.Cancellable;
+import org.bukkit.event.Event;
+import org.bukkit.event.Listener;
+import org.bukkit.plugin.EventExecutor;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.RegisteredListener;
+import org.jspecify.annotations.NullMarked;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+/**
+ * Dispatches an event to a fixed, baked set of listeners.
+ * <p>
+ * Implementations are hidden classes generated for a single {@link RegisteredListener} array. Every listener is
+ * called by its own unrolled block of code with the plugin, executor and listener held in {@code static final}
+ * fields, so the JIT sees a single receiver type at every call site and can inline the handlers, instead of
+ * the megamorphic {@link EventExecutor#execute(Listener, Event)} call of the plain dispatch loop.
+ * </p>
+ * The generated code behaves exactly like {@link PaperEventManager#callEvent(Event)}: listeners of disabled plugins
+ * are skipped, {@link RegisteredListener#isIgnoringCancelled()} is honoured and every exception is handed to
+ * {@link PaperEventManager#handleListenerException(RegisteredListener, Event, Throwable)}.
+ */
+@NullMarked
+abstract class CompiledEventDispatcher {
+
+    /**
+     * The maximum amount of listeners to generate a dispatcher for, keeping the generated method well below the
+     * size the JIT is willing to compile.
+     */
+    static final int MAX_LISTENERS = 64;
+
+    private static final String CLASS_NAME = Type.getInternalName(CompiledEventDispatcher.class) + "$Generated";
+    private static final String SUPER_NAME = Type.getInternalName(CompiledEventDispatcher.class);
+    private static final String MANAGER_DESC = Type.getDescriptor(PaperEventManager.class);
+    private static final String REGISTRATION_DESC = Type.getDescriptor(RegisteredListener.class);
+    private static final String PLUGIN_DESC = Type.getDescriptor(Plugin.class);
+    private static final String EXECUTOR_DESC = Type.getDescriptor(EventExecutor.class);
+    private static final String LISTENER_DESC = Type.getDescriptor(Listener.class);
+
+    abstract void dispatch(Event event);
+
+    static CompiledEventDispatcher compile(final PaperEventManager manager, final RegisteredListener[] listeners) throws ReflectiveOperationException {
+        final List<Object> classData = new ArrayList<>(1 + listeners.length * 4);
+        classData.add(manager);
+        for (final RegisteredListener registration : listeners) {
+            classData.add(registration);
+            classData.add(registration.getPlugin());
+            classData.add(registration.getExecutor());
+            classData.add(registration.getListener());
+        }
+
+        final MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClassWithClassData(generate(listeners), List.copyOf(classData), true);
+        return lookup.lookupClass().asSubclass(CompiledEventDispatcher.class).getDeclaredConstructor().newInstance();
+    }
+
+    /**
+     * Used by the static initializer of generated classes.
+     */
+    static Object classData(final MethodHandles.Lookup lookup, final int index) throws IllegalAccessException {
+        return MethodHandles.classDataAt(lookup, ConstantDescs.DEFAULT_NAME, Object.class, index);
+    }
+
+    private static byte[] generate(final RegisteredListener[] listeners) {
+        final ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_FRAMES | ClassWriter.COMPUTE_MAXS) {
+            @Override
+            protected ClassLoader getClassLoader() {
+                return CompiledEventDispatcher.class.getClassLoader();
+            }
+        };
+        writer.visit(Opcodes.V21, Opcodes.ACC_FINAL | Opcodes.ACC_SUPER | Opcodes.ACC_SYNTHETIC, CLASS_NAME, null, SUPER_NAME, null);
+
+        writer.visitField(Opcodes.ACC_PRIVATE | Opcodes.ACC_STATIC | Opcodes.ACC_FINAL, "manager", MANAGER_DESC, null, null).visitEnd();
+        for (int i = 0; i < listeners.length; ++i) {
+            writer.visitField(Opcodes.ACC_PRIVATE | Opcodes.ACC_STATIC | Opcodes.ACC_FINAL, "registration" + i, REGISTRATION_DESC, null, null).visitEnd();
+            writer.visitField(Opcodes.ACC_PRIVATE | Opcodes.ACC_STATIC | Opcodes.ACC_FINAL, "plugin" + i, PLUGIN_DESC, null, null).visitEnd();
+            writer.visitField(Opcodes.ACC_PRIVATE | Opcodes.ACC_STATIC | Opcodes.ACC_FINAL, "executor" + i, EXECUTOR_DESC, null, null).visitEnd();
+            writer.visitField(Opcodes.ACC_PRIVATE | Opcodes.ACC_STATIC | Opcodes.ACC_FINAL, "listener" + i, LISTENER_DESC, null, null).visitEnd();
+        }
+
+        generateStaticInitializer(writer, listeners.length);
+        generateConstructor(writer);
+        generateDispatch(writer, listeners);
+
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+    private static void generateStaticInitializer(final ClassWriter writer, final int listeners) {
+        final MethodVisitor method = writer.visitMethod(Opcodes.ACC_STATIC, "<clinit>", "()V", null, null);
+        method.visitCode();
+        method.visitMethodInsn(Opcodes.INVOKESTATIC, Type.getInternalName(MethodHandles.class), "lookup", Type.getMethodDescriptor(Type.getType(MethodHandles.Lookup.class)), false);
+        method.visitVarInsn(Opcodes.ASTORE, 0);
+
+        loadClassData(method, 0, "manager", MANAGER_DESC);
+        for (int i = 0; i < listeners; ++i) {
+            loadClassData(method, 1 + i * 4, "registration" + i, REGISTRATION_DESC);
+            loadClassData(method, 2 + i * 4, "plugin" + i, PLUGIN_DESC);
+            loadClassData(method, 3 + i * 4, "executor" + i, EXECUTOR_DESC);
+            loadClassData(method, 4 + i * 4, "listener" + i, LISTENER_DESC);
+        }
+
+        method.visitInsn(Opcodes.RETURN);
+        method.visitMaxs(0, 0);
+        method.visitEnd();
+    }
+
+    private static void loadClassData(final MethodVisitor method, final int index, final String field, final String descriptor) {
+        method.visitVarInsn(Opcodes.ALOAD, 0);
+        method.visitLdcInsn(index);
+        method.visitMethodInsn(Opcodes.INVOKESTATIC, SUPER_NAME, "classData", Type.getMethodDescriptor(Type.getType(Object.class), Type.getType(MethodHandles.Lookup.class), Type.INT_TYPE), false);
+        method.visitTypeInsn(Opcodes.CHECKCAST, Type.getType(descriptor).getInternalName());
+        method.visitFieldInsn(Opcodes.PUTSTATIC, CLASS_NAME, field, descriptor);
+    }
+
+    private static void generateConstructor(final ClassWriter writer) {
+        final MethodVisitor method = writer.visitMethod(0, "<init>", "()V", null, null);
+        method.visitCode();
+        method.visitVarInsn(Opcodes.ALOAD, 0);
+        method.visitMethodInsn(Opcodes.INVOKESPECIAL, SUPER_NAME, "<init>", "()V", false);
+        method.visitInsn(Opcodes.RETURN);
+        method.visitMaxs(0, 0);
+        method.visitEnd();
+    }
+
+    private static void generateDispatch(final ClassWriter writer, final RegisteredListener[] listeners) {
+        final String cancellableName = Type.getInternalName(Cancellable.class);
+
+        final MethodVisitor method = writer.visitMethod(Opcodes.ACC_FINAL, "dispatch", Type.getMethodDescriptor(Type.VOID_TYPE, Type.getType(Event.class)), null, null);
+        method.visitCode();
+        for (int i = 0; i < listeners.length; ++i) {
+            final RegisteredListener registration = listeners[i];
+            final Label start = new Label();
+            final Label end = new Label();
+            final Label handler = new Label();
+            final Label next = new Label();
+            method.visitTryCatchBlock(start, end, handler, Type.getInternalName(Throwable.class));
+
+            // if (!plugin.isEnabled()) continue;
+            method.visitFieldInsn(Opcodes.GETSTATIC, CLASS_NAME, "plugin" + i, PLUGIN_DESC);
+            method.visitMethodInsn(Opcodes.INVOKEINTERFACE, Type.getInternalName(Plugin.class), "isEnabled", "()Z", true);
+            method.visitJumpInsn(Opcodes.IFEQ, next);
+
+            method.visitLabel(start);
+            if (registration.getClass() == RegisteredListener.class) {
+                // inline RegisteredListener#callEvent, subclasses may override it
+                if (registration.isIgnoringCancelled()) {
+                    final Label call = new Label();
+                    method.visitVarInsn(Opcodes.ALOAD, 1);
+                    method.visitTypeInsn(Opcodes.INSTANCEOF, cancellableName);
+                    method.visitJumpInsn(Opcodes.IFEQ, call);
+                    method.visitVarInsn(Opcodes.ALOAD, 1);
+                    method.visitTypeInsn(Opcodes.CHECKCAST, cancellableName);
+                    method.visitMethodInsn(Opcodes.INVOKEINTERFACE, cancellableName, "isCancelled", "()Z", true);
+                    method.visitJumpInsn(Opcodes.IFNE, next);
+                    method.visitLabel(call);
+                }
+                method.visitFieldInsn(Opcodes.GETSTATIC, CLASS_NAME, "executor" + i, EXECUTOR_DESC);
+                method.visitFieldInsn(Opcodes.GETSTATIC, CLASS_NAME, "listener" + i, LISTENER_DESC);
+                method.visitVarInsn(Opcodes.ALOAD, 1);
+                method.visitMethodInsn(Opcodes.INVOKEINTERFACE, Type.getInternalName(EventExecutor.class), "execute", Type.getMethodDescriptor(Type.VOID_TYPE, Type.getType(Listener.class), Type.getType(Event.class)), true);
+            } else {
+                method.visitFieldInsn(Opcodes.GETSTATIC, CLASS_NAME, "registration" + i, REGISTRATION_DESC);
+                method.visitVarInsn(Opcodes.ALOAD, 1);
+                method.visitMethodInsn(Opcodes.INVOKEVIRTUAL, Type.getInternalName(RegisteredListener.class), "callEvent", Type.getMethodDescriptor(Type.VOID_TYPE, Type.getType(Event.class)), false);
+            }
+            method.visitLabel(end);
+            method.visitJumpInsn(Opcodes.GOTO, next);
+
+            // catch (Throwable ex) { manager.handleListenerException(registration, event, ex); }
+            method.visitLabel(handler);
+            method.visitVarInsn(Opcodes.ASTORE, 2);
+            method.visitFieldInsn(Opcodes.GETSTATIC, CLASS_NAME, "manager", MANAGER_DESC);
+            method.visitFieldInsn(Opcodes.GETSTATIC, CLASS_NAME, "registration" + i, REGISTRATION_DESC);
+            method.visitVarInsn(Opcodes.ALOAD, 1);
+            method.visitVarInsn(Opcodes.ALOAD, 2);
+            method.visitMethodInsn(Opcodes.INVOKEVIRTUAL, Type.getInternalName(PaperEventManager.class), "handleListenerException", Type.getMethodDescriptor(Type.VOID_TYPE, Type.getType(RegisteredListener.class), Type.getType(Event.class), Type.getType(Throwable.class)), false);
+
+            method.visitLabel(next);
+        }
+        method.visitInsn(Opcodes.RETURN);
+        method.visitMaxs(0, 0);
+        method.visitEnd();
+    }
+}
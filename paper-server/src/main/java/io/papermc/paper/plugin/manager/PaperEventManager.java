@@ -22,13 +22,47 @@ import java.lang.reflect.Method;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
 import java.util.logging.Level;
 
 class PaperEventManager {
 
+    /**
+     * The amount of times an event type has to be called with the same baked listeners before a
+     * {@link CompiledEventDispatcher} is generated for it, or a negative value to never generate dispatchers.
+     */
+    private static final int COMPILE_THRESHOLD = Integer.getInteger("paper.eventDispatchCompileThreshold", 256);
+
     private final Server server;
+    private final ClassValue<DispatchSlot> dispatchSlots = new ClassValue<>() {
+        @Override
+        protected DispatchSlot computeValue(final Class<?> type) {
+            return new DispatchSlot();
+        }
+    };
+
+    // slots with a state, so that states referencing stale listeners can be dropped before their event is called again
+    private final Set<DispatchSlot> activeSlots = ConcurrentHashMap.newKeySet();
+
+    private static final class DispatchSlot {
+        volatile DispatchState state;
+    }
+
+    private static final class DispatchState {
+        final HandlerList handlers;
+        final RegisteredListener[] listeners;
+        int calls; // racy, only used as a heuristic
+        volatile CompiledEventDispatcher compiled;
+
+        DispatchState(final HandlerList handlers, final RegisteredListener[] listeners) {
+            this.handlers = handlers;
+            this.listeners = listeners;
+        }
+    }
 
     public PaperEventManager(Server server) {
         this.server = server;
@@ -45,6 +79,24 @@ class PaperEventManager {
         HandlerList handlers = event.getHandlers();
         RegisteredListener[] listeners = handlers.getRegisteredListeners();
 
+        if (COMPILE_THRESHOLD >= 0 && listeners.length != 0 && listeners.length <= CompiledEventDispatcher.MAX_LISTENERS) {
+            final DispatchSlot slot = this.dispatchSlots.get(event.getClass());
+            DispatchState state = slot.state;
+            if (state == null || state.listeners != listeners) {
+                // handler list was re-baked
+                slot.state = state = new DispatchState(handlers, listeners);
+                this.activeSlots.add(slot);
+            }
+            final CompiledEventDispatcher compiled = state.compiled;
+            if (compiled != null) {
+                compiled.dispatch(event);
+                return;
+            }
+            if (++state.calls == COMPILE_THRESHOLD) {
+                this.compile(event, state);
+            }
+        }
+
         for (RegisteredListener registration : listeners) {
             if (!registration.getPlugin().isEnabled()) {
                 continue;
@@ -52,26 +104,73 @@ class PaperEventManager {
 
             try {
                 registration.callEvent(event);
-            } catch (AuthorNagException ex) {
-                Plugin plugin = registration.getPlugin();
-
-                if (plugin.isNaggable()) {
-                    plugin.setNaggable(false);
-
-                    this.server.getLogger().log(Level.SEVERE, String.format(
-                        "Nag author(s): '%s' of '%s' about the following: %s",
-                        plugin.getPluginMeta().getAuthors(),
-                        plugin.getPluginMeta().getDisplayName(),
-                        ex.getMessage()
-                    ));
-                }
             } catch (Throwable ex) {
-                String msg = "Could not pass event " + event.getEventName() + " to " + registration.getPlugin().getPluginMeta().getDisplayName();
-                this.server.getLogger().log(Level.SEVERE, msg, ex);
-                if (!(event instanceof ServerExceptionEvent)) { // We don't want to cause an endless event loop
-                    this.callEvent(new ServerExceptionEvent(new ServerEventException(msg, ex, registration.getPlugin(), registration.getListener(), event)));
+                this.handleListenerException(registration, event, ex);
+            }
+        }
+    }
+
+    void handleListenerException(@NotNull RegisteredListener registration, @NotNull Event event, @NotNull Throwable ex) {
+        if (ex instanceof AuthorNagException) {
+            Plugin plugin = registration.getPlugin();
+
+            if (plugin.isNaggable()) {
+                plugin.setNaggable(false);
+
+                this.server.getLogger().log(Level.SEVERE, String.format(
+                    "Nag author(s): '%s' of '%s' about the following: %s",
+                    plugin.getPluginMeta().getAuthors(),
+                    plugin.getPluginMeta().getDisplayName(),
+                    ex.getMessage()
+                ));
+            }
+            return;
+        }
+
+        String msg = "Could not pass event " + event.getEventName() + " to " + registration.getPlugin().getPluginMeta().getDisplayName();
+        this.server.getLogger().log(Level.SEVERE, msg, ex);
+        if (!(event instanceof ServerExceptionEvent)) { // We don't want to cause an endless event loop
+            this.callEvent(new ServerExceptionEvent(new ServerEventException(msg, ex, registration.getPlugin(), registration.getListener(), event)));
+        }
+    }
+
+    /**
+     * Drops the dispatch states of the events the plugin listens to. A generated dispatcher references its listeners
+     * from static fields, which would otherwise keep the plugin and its class loader reachable until the event is called
+     * again.
+     */
+    void invalidateDispatchers(@NotNull Plugin plugin) {
+        this.invalidateDispatchers(state -> {
+            for (final RegisteredListener listener : state.listeners) {
+                if (listener.getPlugin() == plugin) {
+                    return true;
                 }
             }
+            return false;
+        });
+    }
+
+    private void invalidateDispatchers(@NotNull HandlerList handlers) {
+        this.invalidateDispatchers(state -> state.handlers == handlers);
+    }
+
+    private void invalidateDispatchers(@NotNull Predicate<DispatchState> filter) {
+        for (final Iterator<DispatchSlot> iterator = this.activeSlots.iterator(); iterator.hasNext(); ) {
+            final DispatchSlot slot = iterator.next();
+            final DispatchState state = slot.state;
+            if (state == null || filter.test(state)) {
+                iterator.remove();
+                slot.state = null;
+            }
+        }
+    }
+
+    private void compile(@NotNull Event event, @NotNull DispatchState state) {
+        try {
+            state.compiled = CompiledEventDispatcher.compile(this, state.listeners);
+        } catch (Throwable ex) {
+            state.calls = Integer.MIN_VALUE; // don't try again for these listeners
+            this.server.getLogger().log(Level.WARNING, "Failed to generate event dispatcher for " + event.getEventName() + ", falling back to the default dispatch", ex);
         }
     }
 
@@ -81,7 +180,9 @@ class PaperEventManager {
         }
 
         for (Map.Entry<Class<? extends Event>, Set<RegisteredListener>> entry : this.createRegisteredListeners(listener, plugin).entrySet()) {
-            this.getEventListeners(this.getRegistrationClass(entry.getKey())).registerAll(entry.getValue());
+            final HandlerList handlers = this.getEventListeners(this.getRegistrationClass(entry.getKey()));
+            handlers.registerAll(entry.getValue());
+            this.invalidateDispatchers(handlers);
         }
 
     }
@@ -96,7 +197,9 @@ class PaperEventManager {
         }
 
         executor = new TimedEventExecutor(executor, plugin, null, event);
-        this.getEventListeners(event).register(new RegisteredListener(listener, executor, priority, plugin, ignoreCancelled));
+        final HandlerList handlers = this.getEventListeners(event);
+        handlers.register(new RegisteredListener(listener, executor, priority, plugin, ignoreCancelled));
+        this.invalidateDispatchers(handlers);
     }
 
     @NotNull
@@ -190,5 +293,6 @@ class PaperEventManager {
 
     public void clearEvents() {
         HandlerList.unregisterAll();
+        this.invalidateDispatchers(state -> true);
     }
 }
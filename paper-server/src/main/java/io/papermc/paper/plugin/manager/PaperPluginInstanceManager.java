@@ -279,6 +279,8 @@ class PaperPluginInstanceManager {
         }
         // Paper end - Folia schedulers
 
+        io.papermc.paper.threadedregions.scheduler.PluginTaskExecutor.shutdown(plugin); // Paper - per plugin async task limit
+
         try {
             this.server.getServicesManager().unregisterAll(plugin);
         } catch (Throwable ex) {
@@ -288,6 +290,7 @@ class PaperPluginInstanceManager {
 
         try {
             HandlerList.unregisterAll(plugin);
+            PaperPluginManagerImpl.getInstance().paperEventManager.invalidateDispatchers(plugin); // Paper - compiled event dispatchers
         } catch (Throwable ex) {
             this.handlePluginException("Error occurred (in the plugin loader) while unregistering events for "
                 + pluginName + " (Is it up to date?)", ex, plugin); // Paper
@@ -44,6 +44,8 @@ public final class FoliaAsyncScheduler implements AsyncScheduler {
         }
     );
 
+    private final PluginTaskExecutor taskExecutor = new PluginTaskExecutor(this.executors, "Folia Async Scheduler Thread #");
+
     private final ScheduledExecutorService timerThread = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
         @Override
         public Thread newThread(final Runnable run) {
@@ -73,7 +75,7 @@ public final class FoliaAsyncScheduler implements AsyncScheduler {
         final AsyncScheduledTask ret = new AsyncScheduledTask(plugin, -1L, task, null, -1L);
 
         this.tasks.add(ret);
-        this.executors.execute(ret);
+        this.taskExecutor.execute(plugin, ret);
 
         if (!plugin.isEnabled()) {
             // handle race condition where plugin is disabled asynchronously
@@ -209,7 +211,7 @@ public final class FoliaAsyncScheduler implements AsyncScheduler {
             if (timer) {
                 // the scheduled executor is single thread, and unfortunately not expandable with threads
                 // so we just schedule onto the executor
-                FoliaAsyncScheduler.this.executors.execute(this);
+                FoliaAsyncScheduler.this.taskExecutor.execute(this.plugin, this);
                 return;
             }
 
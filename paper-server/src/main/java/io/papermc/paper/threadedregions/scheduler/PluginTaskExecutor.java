@@ -0,0 +1,259 @@
+package io.papermc.paper.threadedregions.scheduler;
+
+import com.mojang.logging.LogUtils;
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import jdk.jfr.consumer.RecordingStream;
+import org.bukkit.plugin.Plugin;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+
+/**
+ * Runs the asynchronous tasks of plugins, either on the platform thread pool of a scheduler or on a new virtual
+ * thread per task, and limits how many tasks of a single plugin may run at the same time.
+ * <p>
+ * The mode and the limit are shared by all executors and configured in the global configuration. A limit applies to
+ * the tasks of a plugin of every scheduler combined, tasks above it are queued until a running task of the plugin
+ * finishes.
+ * </p>
+ * With virtual threads, blocking calls of plugins park the virtual thread instead of occupying a platform thread.
+ * Virtual threads run on the carrier pool of the JVM, which can only be sized before the first virtual thread is
+ * created.
+ */
+@NullMarked
+public final class PluginTaskExecutor {
+
+    private static final Logger LOGGER = LogUtils.getClassLogger();
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+
+    private static final ConcurrentHashMap<Plugin, PluginTasks> PLUGINS = new ConcurrentHashMap<>();
+    private static final LongAdder COMPLETED = new LongAdder();
+    private static final LongAdder PINNED = new LongAdder();
+    private static final LongAdder PINNED_NANOS = new LongAdder();
+    private static final Metrics METRICS = new Metrics();
+
+    private static volatile boolean virtualThreads;
+    private static volatile int concurrencyLimit = -1;
+    private static @Nullable RecordingStream pinnedMonitor;
+
+    private final Executor platformExecutor;
+    private final ThreadFactory virtualThreadFactory;
+
+    public PluginTaskExecutor(final Executor platformExecutor, final String virtualThreadPrefix) {
+        this.platformExecutor = platformExecutor;
+        this.virtualThreadFactory = Thread.ofVirtual()
+            .name(virtualThreadPrefix, 0L)
+            .uncaughtExceptionHandler((final Thread thread, final Throwable throwable) -> {
+                LOGGER.error("Uncaught exception in thread: " + thread.getName(), throwable);
+            })
+            .factory();
+    }
+
+    /**
+     * Applies the global configuration. The carrier thread count is only applied if virtual threads are enabled for
+     * the first time and no virtual thread was created before.
+     *
+     * @param useVirtualThreads whether to run tasks on virtual threads
+     * @param carrierThreads the amount of carrier threads, or a value below {@code 1} for the default of the JVM
+     * @param perPluginLimit the maximum amount of tasks of a plugin running at the same time, or a value below
+     *                       {@code 1} for no limit
+     */
+    public static synchronized void configure(final boolean useVirtualThreads, final int carrierThreads, final int perPluginLimit) {
+        if (useVirtualThreads && pinnedMonitor == null) {
+            if (carrierThreads > 0 && System.getProperty("jdk.virtualThreadScheduler.parallelism") == null) {
+                System.setProperty("jdk.virtualThreadScheduler.parallelism", Integer.toString(carrierThreads));
+                // allow some compensation for blocking file I/O, which captures the carrier
+                System.setProperty("jdk.virtualThreadScheduler.maxPoolSize", Integer.toString(carrierThreads * 2));
+            }
+            pinnedMonitor = startPinnedMonitor();
+        }
+        virtualThreads = useVirtualThreads;
+        concurrencyLimit = perPluginLimit;
+
+        // a raised limit has to start queued tasks right away
+        for (final PluginTasks tasks : PLUGINS.values()) {
+            tasks.drain();
+        }
+    }
+
+    private static @Nullable RecordingStream startPinnedMonitor() {
+        try {
+            final RecordingStream stream = new RecordingStream();
+            stream.enable(PINNED_EVENT);
+            stream.setMaxAge(Duration.ofMinutes(1L));
+            stream.onEvent(PINNED_EVENT, event -> {
+                PINNED.increment();
+                PINNED_NANOS.add(event.getDuration().toNanos());
+            });
+            stream.startAsync();
+            return stream;
+        } catch (final Throwable throwable) { // JFR may not be available
+            LOGGER.warn("Unable to monitor pinned virtual threads, pinning will not be reported", throwable);
+            return null;
+        }
+    }
+
+    public static AsyncTaskMetrics metrics() {
+        return METRICS;
+    }
+
+    /**
+     * Forgets the tasks of a disabled plugin. Queued tasks of the plugin are dropped, running tasks are left to
+     * finish.
+     *
+     * @param plugin the disabled plugin
+     */
+    public static void shutdown(final Plugin plugin) {
+        final PluginTasks tasks = PLUGINS.remove(plugin);
+        if (tasks != null) {
+            tasks.shutdown();
+        }
+    }
+
+    public void execute(final Plugin plugin, final Runnable task) {
+        PLUGINS.computeIfAbsent(plugin, key -> new PluginTasks()).execute(this, task);
+    }
+
+    private void start(final PluginTasks tasks, final Runnable task) {
+        final Runnable run = () -> {
+            try {
+                task.run();
+            } finally {
+                COMPLETED.increment();
+                tasks.finished();
+            }
+        };
+        if (virtualThreads) {
+            this.virtualThreadFactory.newThread(run).start();
+        } else {
+            this.platformExecutor.execute(run);
+        }
+    }
+
+    private record QueuedTask(PluginTaskExecutor executor, Runnable task) {
+    }
+
+    private static final class PluginTasks {
+
+        private final AtomicInteger running = new AtomicInteger();
+        private final AtomicInteger queued = new AtomicInteger();
+        private final Queue<QueuedTask> queue = new ConcurrentLinkedQueue<>();
+        private volatile boolean shutdown;
+
+        void execute(final PluginTaskExecutor executor, final Runnable task) {
+            if (this.shutdown) {
+                return;
+            }
+            if (concurrencyLimit <= 0 && this.queued.get() == 0) {
+                this.running.getAndIncrement();
+                executor.start(this, task);
+                return;
+            }
+            this.queued.getAndIncrement();
+            this.queue.add(new QueuedTask(executor, task));
+            this.drain();
+        }
+
+        void shutdown() {
+            this.shutdown = true;
+            while (this.queue.poll() != null) {
+                this.queued.getAndDecrement();
+            }
+        }
+
+        void finished() {
+            this.running.getAndDecrement();
+            if (!this.shutdown && this.queued.get() != 0) {
+                this.drain();
+            }
+        }
+
+        void drain() {
+            for (;;) {
+                if (this.shutdown) {
+                    return;
+                }
+                final int limit = concurrencyLimit;
+                final int running = this.running.get();
+                if (limit > 0 && running >= limit) {
+                    // the task to finish next drains the queue
+                    return;
+                }
+                if (!this.running.compareAndSet(running, running + 1)) {
+                    continue;
+                }
+                final QueuedTask next = this.queue.poll();
+                if (next == null) {
+                    this.running.getAndDecrement();
+                    // a task may have been queued after the poll, while the slot was still taken
+                    if (this.queue.isEmpty()) {
+                        return;
+                    }
+                    continue;
+                }
+                this.queued.getAndDecrement();
+                next.executor().start(this, next.task());
+            }
+        }
+    }
+
+    private static final class Metrics implements AsyncTaskMetrics {
+
+        @Override
+        public boolean isUsingVirtualThreads() {
+            return virtualThreads;
+        }
+
+        @Override
+        public int getRunningTasks() {
+            int ret = 0;
+            for (final PluginTasks tasks : PLUGINS.values()) {
+                ret += tasks.running.get();
+            }
+            return ret;
+        }
+
+        @Override
+        public int getRunningTasks(final Plugin plugin) {
+            final PluginTasks tasks = PLUGINS.get(plugin);
+            return tasks == null ? 0 : tasks.running.get();
+        }
+
+        @Override
+        public int getQueuedTasks() {
+            int ret = 0;
+            for (final PluginTasks tasks : PLUGINS.values()) {
+                ret += tasks.queued.get();
+            }
+            return ret;
+        }
+
+        @Override
+        public int getQueuedTasks(final Plugin plugin) {
+            final PluginTasks tasks = PLUGINS.get(plugin);
+            return tasks == null ? 0 : tasks.queued.get();
+        }
+
+        @Override
+        public long getCompletedTasks() {
+            return COMPLETED.sum();
+        }
+
+        @Override
+        public long getPinnedThreadEvents() {
+            return PINNED.sum();
+        }
+
+        @Override
+        public Duration getPinnedThreadTime() {
+            return Duration.ofNanos(PINNED_NANOS.sum());
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package io.papermc.paper.util;
+
+import ca.spottedleaf.moonrise.patches.collisions.CollisionUtil;
+import java.util.List;
+import net.minecraft.world.phys.AABB;
+import net.minecraft.world.phys.Vec3;
+import net.minecraft.world.phys.shapes.VoxelShape;
+import org.jspecify.annotations.NullMarked;
+
+/**
+ * Collision boxes copied into one array per coordinate, so movement is resolved against all of them with branch free
+ * loops over primitive arrays instead of dereferencing every {@link AABB} once for each axis.
+ * <p>
+ * The movement along an axis is the minimum (or maximum, when moving backwards) of the distances to every box in the
+ * way, which does not depend on the order of the boxes. Only a box the source already overlaps by less than
+ * {@link CollisionUtil#COLLISION_EPSILON} can flip the direction of the movement midway, in which case the boxes are
+ * checked one by one in order, exactly like {@link CollisionUtil#collideX(AABB, AABB, double)}.
+ */
+@NullMarked
+public final class CollisionBoxBatch {
+
+    /**
+     * The amount of boxes from which copying them pays off over checking each box on every axis.
+     */
+    public static final int MIN_SIZE = 16;
+
+    private static final double EPSILON = CollisionUtil.COLLISION_EPSILON;
+    private static final ThreadLocal<CollisionBoxBatch> BATCH = ThreadLocal.withInitial(CollisionBoxBatch::new);
+
+    private double[] minX = new double[MIN_SIZE];
+    private double[] minY = new double[MIN_SIZE];
+    private double[] minZ = new double[MIN_SIZE];
+    private double[] maxX = new double[MIN_SIZE];
+    private double[] maxY = new double[MIN_SIZE];
+    private double[] maxZ = new double[MIN_SIZE];
+    private int size;
+
+    CollisionBoxBatch() {
+    }
+
+    /**
+     * Same as {@link CollisionUtil#performCollisions(Vec3, AABB, List, List)}, but resolves the boxes as a batch.
+     */
+    public static Vec3 performCollisions(final Vec3 moveVector, AABB box, final List<VoxelShape> voxels, final List<AABB> aabbs) {
+        final CollisionBoxBatch batch = BATCH.get();
+        batch.set(aabbs);
+
+        double x = moveVector.x;
+        double y = moveVector.y;
+        double z = moveVector.z;
+
+        if (y != 0.0) {
+            y = batch.collideY(box, y);
+            y = CollisionUtil.performVoxelCollisionsY(box, y, voxels);
+            if (y != 0.0) {
+                box = CollisionUtil.offsetY(box, y);
+            }
+        }
+
+        final boolean xSmaller = Math.abs(x) < Math.abs(z);
+
+        if (xSmaller && z != 0.0) {
+            z = batch.collideZ(box, z);
+            z = CollisionUtil.performVoxelCollisionsZ(box, z, voxels);
+            if (z != 0.0) {
+                box = CollisionUtil.offsetZ(box, z);
+            }
+        }
+
+        if (x != 0.0) {
+            x = batch.collideX(box, x);
+            x = CollisionUtil.performVoxelCollisionsX(box, x, voxels);
+            if (!xSmaller && x != 0.0) {
+                box = CollisionUtil.offsetX(box, x);
+            }
+        }
+
+        if (!xSmaller && z != 0.0) {
+            z = batch.collideZ(box, z);
+            z = CollisionUtil.performVoxelCollisionsZ(box, z, voxels);
+        }
+
+        return new Vec3(x, y, z);
+    }
+
+    void set(final List<AABB> boxes) {
+        final int size = boxes.size();
+        if (this.minX.length < size) {
+            final int capacity = Math.max(size, this.minX.length * 2);
+            this.minX = new double[capacity];
+            this.minY = new double[capacity];
+            this.minZ = new double[capacity];
+            this.maxX = new double[capacity];
+            this.maxY = new double[capacity];
+            this.maxZ = new double[capacity];
+        }
+        for (int i = 0; i < size; ++i) {
+            final AABB box = boxes.get(i);
+            this.minX[i] = box.minX;
+            this.minY[i] = box.minY;
+            this.minZ[i] = box.minZ;
+            this.maxX[i] = box.maxX;
+            this.maxY[i] = box.maxY;
+            this.maxZ[i] = box.maxZ;
+        }
+        this.size = size;
+    }
+
+    double collideX(final AABB source, final double move) {
+        return collide(this.minX, this.maxX, this.minY, this.maxY, this.minZ, this.maxZ, this.size,
+            source.minX, source.maxX, source.minY, source.maxY, source.minZ, source.maxZ, move);
+    }
+
+    double collideY(final AABB source, final double move) {
+        return collide(this.minY, this.maxY, this.minX, this.maxX, this.minZ, this.maxZ, this.size,
+            source.minY, source.maxY, source.minX, source.maxX, source.minZ, source.maxZ, move);
+    }
+
+    double collideZ(final AABB source, final double move) {
+        return collide(this.minZ, this.maxZ, this.minX, this.maxX, this.minY, this.maxY, this.size,
+            source.minZ, source.maxZ, source.minX, source.maxX, source.minY, source.maxY, move);
+    }
+
+    // the movement axis is a, the other axes are b and c
+    private static double collide(final double[] minA, final double[] maxA, final double[] minB, final double[] maxB,
+                                  final double[] minC, final double[] maxC, final int size,
+                                  final double sourceMinA, final double sourceMaxA, final double sourceMinB, final double sourceMaxB,
+                                  final double sourceMinC, final double sourceMaxC, final double move) {
+        double ret = move;
+        if (move >= 0.0) {
+            for (int i = 0; i < size; ++i) {
+                final double maxMove = minA[i] - sourceMaxA; // < 0.0 if no strict collision
+                final boolean collides = (sourceMinB - maxB[i]) < -EPSILON & (sourceMaxB - minB[i]) > EPSILON
+                    & (sourceMinC - maxC[i]) < -EPSILON & (sourceMaxC - minC[i]) > EPSILON
+                    & maxMove >= -EPSILON;
+                ret = collides ? Math.min(maxMove, ret) : ret;
+            }
+            if (ret >= 0.0) {
+                return ret;
+            }
+        } else {
+            for (int i = 0; i < size; ++i) {
+                final double maxMove = maxA[i] - sourceMinA; // > 0.0 if no strict collision
+                final boolean collides = (sourceMinB - maxB[i]) < -EPSILON & (sourceMaxB - minB[i]) > EPSILON
+                    & (sourceMinC - maxC[i]) < -EPSILON & (sourceMaxC - minC[i]) > EPSILON
+                    & maxMove <= EPSILON;
+                ret = collides ? Math.max(maxMove, ret) : ret;
+            }
+            if (ret <= 0.0) {
+                return ret;
+            }
+        }
+
+        // the direction flipped midway, resolve in order
+        ret = move;
+        for (int i = 0; i < size; ++i) {
+            if ((sourceMinB - maxB[i]) < -EPSILON && (sourceMaxB - minB[i]) > EPSILON
+                && (sourceMinC - maxC[i]) < -EPSILON && (sourceMaxC - minC[i]) > EPSILON) {
+                if (ret >= 0.0) {
+                    final double maxMove = minA[i] - sourceMaxA;
+                    if (maxMove >= -EPSILON) {
+                        ret = Math.min(maxMove, ret);
+                    }
+                } else {
+                    final double maxMove = maxA[i] - sourceMinA;
+                    if (maxMove <= EPSILON) {
+                        ret = Math.max(maxMove, ret);
+                    }
+                }
+            }
+        }
+        return ret;
+    }
+}
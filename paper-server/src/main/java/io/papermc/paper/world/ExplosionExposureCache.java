@@ -0,0 +1,121 @@
+package io.papermc.paper.world;
+
+import java.util.HashMap;
+import java.util.Map;
+import net.minecraft.util.Mth;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.chunk.LevelChunk;
+import net.minecraft.world.level.chunk.LevelChunkSection;
+import net.minecraft.world.phys.AABB;
+import net.minecraft.world.phys.Vec3;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * How much of an entity each explosion of the current tick could see, shared between all explosions of the tick.
+ * <p>
+ * TNT cannons detonate hundreds of explosions per tick at the same spot, each casting the same rays towards the same
+ * entities. The rays between an explosion and an entity only pass the blocks between the two, so every exposure
+ * remembers the chunk sections around them and is only reused while none of those sections changed. Unlike the
+ * {@code optimize-explosions} cache, this never returns an exposure computed against blocks which have since changed.
+ */
+@NullMarked
+public final class ExplosionExposureCache {
+
+    private static final int MAX_SECTIONS = 3 * 3 * 3;
+
+    private final Map<Key, Exposure> exposures = new HashMap<>();
+
+    /**
+     * Gets the exposure of the given box to an explosion at the given center.
+     *
+     * @param level the level of the explosion
+     * @param center the center of the explosion
+     * @param box the bounding box of the entity
+     * @return the exposure, or {@link Float#NaN} if it is not known or the blocks in between changed since
+     */
+    public float get(final Level level, final Vec3 center, final AABB box) {
+        final Key key = new Key(center, box);
+        final @Nullable Exposure exposure = this.exposures.get(key);
+        if (exposure == null) {
+            return Float.NaN;
+        }
+
+        final LevelChunkSection @Nullable [] sections = getSections(level, center, box);
+        if (sections == null || sections.length != exposure.sections.length) {
+            this.exposures.remove(key);
+            return Float.NaN;
+        }
+        for (int i = 0; i < sections.length; ++i) {
+            if (sections[i] != exposure.sections[i] || sections[i].modificationCount != exposure.modificationCounts[i]) {
+                this.exposures.remove(key);
+                return Float.NaN;
+            }
+        }
+        return exposure.exposure;
+    }
+
+    /**
+     * Stores the exposure of the given box to an explosion at the given center, computed against the current blocks.
+     *
+     * @param level the level of the explosion
+     * @param center the center of the explosion
+     * @param box the bounding box of the entity
+     * @param exposure the exposure
+     */
+    public void put(final Level level, final Vec3 center, final AABB box, final float exposure) {
+        final LevelChunkSection @Nullable [] sections = getSections(level, center, box);
+        if (sections == null) {
+            return;
+        }
+        final int[] modificationCounts = new int[sections.length];
+        for (int i = 0; i < sections.length; ++i) {
+            modificationCounts[i] = sections[i].modificationCount;
+        }
+        this.exposures.put(new Key(center, box), new Exposure(exposure, sections, modificationCounts));
+    }
+
+    public void clear() {
+        if (!this.exposures.isEmpty()) {
+            this.exposures.clear();
+        }
+    }
+
+    // the sections of the blocks the rays between the center and the box pass, or null if there are too many of them
+    // or some of them are not loaded
+    private static LevelChunkSection @Nullable [] getSections(final Level level, final Vec3 center, final AABB box) {
+        final int minSectionX = Mth.floor(Math.min(center.x, box.minX)) >> 4;
+        final int minSectionY = Math.max(Mth.floor(Math.min(center.y, box.minY)) >> 4, level.getMinSectionY());
+        final int minSectionZ = Mth.floor(Math.min(center.z, box.minZ)) >> 4;
+        final int maxSectionX = Mth.floor(Math.max(center.x, box.maxX)) >> 4;
+        final int maxSectionY = Math.min(Mth.floor(Math.max(center.y, box.maxY)) >> 4, level.getMaxSectionY());
+        final int maxSectionZ = Mth.floor(Math.max(center.z, box.maxZ)) >> 4;
+
+        // blocks outside of the world never change
+        final int count = (maxSectionX - minSectionX + 1) * Math.max(0, maxSectionY - minSectionY + 1) * (maxSectionZ - minSectionZ + 1);
+        if (count > MAX_SECTIONS) {
+            return null;
+        }
+
+        final LevelChunkSection[] ret = new LevelChunkSection[count];
+        int i = 0;
+        for (int sectionX = minSectionX; sectionX <= maxSectionX; ++sectionX) {
+            for (int sectionZ = minSectionZ; sectionZ <= maxSectionZ; ++sectionZ) {
+                final @Nullable LevelChunk chunk = level.getChunkIfLoaded(sectionX, sectionZ);
+                if (chunk == null) {
+                    return null;
+                }
+                for (int sectionY = minSectionY; sectionY <= maxSectionY; ++sectionY) {
+                    ret[i++] = chunk.getSection(level.getSectionIndexFromSectionY(sectionY));
+                }
+            }
+        }
+        return ret;
+    }
+
+    private record Key(Vec3 center, AABB box) {
+    }
+
+    private record Exposure(float exposure, LevelChunkSection[] sections, int[] modificationCounts) {
+    }
+}
@@ -0,0 +1,102 @@
+package io.papermc.paper.world;
+
+import ca.spottedleaf.moonrise.patches.starlight.light.StarLightLightingProvider;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongCollection;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongLinkedOpenHashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import net.minecraft.core.SectionPos;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.ChunkPos;
+import org.jspecify.annotations.NullMarked;
+
+/**
+ * Relights the chunks around a set of changed chunk sections with a single pass of the light engine, instead of
+ * propagating every block change on its own.
+ * <p>
+ * This only picks and orders the chunks, the relight itself goes through the same entry point as the relight command,
+ * which keeps the chunks loaded, skips chunks which are not lit yet and sends one light update per relit chunk.
+ */
+@NullMarked
+public final class SectionRelighter {
+
+    private SectionRelighter() {
+    }
+
+    /**
+     * Relights the chunks holding the given sections and their neighbours.
+     *
+     * @param level the level
+     * @param sections the keys of the changed sections, see {@link SectionPos#asLong(int, int, int)}
+     * @return a future completed on the main thread with the amount of relit chunks
+     */
+    public static CompletableFuture<Integer> relight(final ServerLevel level, final LongCollection sections) {
+        final CompletableFuture<Integer> ret = new CompletableFuture<>();
+        final int queued = ((StarLightLightingProvider) level.getChunkSource().getLightEngine()).starlight$serverRelightChunks(
+            chunksToRelight(sections), null,
+            (final int relit) -> MinecraftServer.getServer().scheduleOnMain(() -> ret.complete(relit))
+        );
+        if (queued == 0) {
+            ret.complete(0);
+        }
+        return ret;
+    }
+
+    /**
+     * {@return the chunks to relight for the given sections} These are the chunks holding a changed section and their
+     * neighbours, as light spreads at most 15 blocks. The chunks are ordered by their distance to the center of the
+     * changed chunks, as the light engine performs best when every chunk is close to the chunks lit before it.
+     *
+     * @param sections the keys of the changed sections
+     */
+    static Set<ChunkPos> chunksToRelight(final LongCollection sections) {
+        final LongLinkedOpenHashSet changed = new LongLinkedOpenHashSet();
+        for (final LongIterator iterator = sections.iterator(); iterator.hasNext(); ) {
+            final long section = iterator.nextLong();
+            changed.add(ChunkPos.asLong(SectionPos.x(section), SectionPos.z(section)));
+        }
+        if (changed.isEmpty()) {
+            return new LinkedHashSet<>();
+        }
+
+        long sumX = 0L;
+        long sumZ = 0L;
+        final LongLinkedOpenHashSet chunks = new LongLinkedOpenHashSet();
+        for (final LongIterator iterator = changed.iterator(); iterator.hasNext(); ) {
+            final long chunk = iterator.nextLong();
+            final int chunkX = ChunkPos.getX(chunk);
+            final int chunkZ = ChunkPos.getZ(chunk);
+            sumX += chunkX;
+            sumZ += chunkZ;
+            for (int dz = -1; dz <= 1; ++dz) {
+                for (int dx = -1; dx <= 1; ++dx) {
+                    chunks.add(ChunkPos.asLong(chunkX + dx, chunkZ + dz));
+                }
+            }
+        }
+
+        final double centerX = (double) sumX / changed.size();
+        final double centerZ = (double) sumZ / changed.size();
+        final LongArrayList ordered = new LongArrayList(chunks);
+        ordered.sort((final long chunk1, final long chunk2) -> {
+            final int compare = Double.compare(distanceSquared(chunk1, centerX, centerZ), distanceSquared(chunk2, centerX, centerZ));
+            return compare != 0 ? compare : Long.compare(chunk1, chunk2);
+        });
+
+        final Set<ChunkPos> ret = new LinkedHashSet<>(ordered.size());
+        for (int i = 0, len = ordered.size(); i < len; ++i) {
+            ret.add(new ChunkPos(ordered.getLong(i)));
+        }
+        return ret;
+    }
+
+    private static double distanceSquared(final long chunk, final double centerX, final double centerZ) {
+        final double dx = ChunkPos.getX(chunk) - centerX;
+        final double dz = ChunkPos.getZ(chunk) - centerZ;
+        return dx * dx + dz * dz;
+    }
+}
@@ -0,0 +1,572 @@
+package io.papermc.paper.world.storage;
+
+import ca.spottedleaf.moonrise.patches.chunk_system.io.MoonriseRegionFileIO;
+import ca.spottedleaf.moonrise.patches.chunk_system.util.stream.ExternalChunkStreamMarker;
+import com.mojang.logging.LogUtils;
+import io.papermc.paper.configuration.WorldConfiguration;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.util.profiling.jfr.JvmProfiler;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.chunk.storage.RegionFile;
+import net.minecraft.world.level.chunk.storage.RegionFileVersion;
+import net.minecraft.world.level.chunk.storage.RegionStorageInfo;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+
+/**
+ * A {@link RegionFile} which keeps the 8 KiB header and the sector area mapped into memory.
+ * <p>
+ * Reads copy directly out of the mapped sectors instead of issuing a positional read per chunk. The sector area is
+ * mapped in fixed size segments, so a growing file only maps its new segments instead of remapping everything. Header
+ * updates only touch the mapped page - the header is written back once per {@link #flush()} rather than
+ * on every sector allocation. Access to the header is guarded by a set of striped locks keyed by the chunk
+ * index, so chunks in the same region can be read by multiple io threads at once, also while a chunk is written.
+ * Writes are serialised on the monitor of the file from the sector allocation up to publishing the new offset in the
+ * header, as header recalculation rebuilds the used sectors from the header under the same monitor.
+ * </p>
+ * <p>
+ * The file layout is identical to the vanilla region format, so worlds may be switched between backends freely.
+ * Header recovery on corruption, both while opening and when a read finds a corrupt chunk, is performed by the
+ * superclass, which hands the result back through {@link #onHeaderRecalculated(IntBuffer, IntBuffer)}.
+ * </p>
+ */
+public final class MappedRegionFile extends RegionFile {
+
+    private static final Logger LOGGER = LogUtils.getClassLogger();
+
+    private static final int SECTOR_BYTES = 4096;
+    private static final int SECTOR_INTS = SECTOR_BYTES / Integer.BYTES;
+    private static final int HEADER_BYTES = 2 * SECTOR_BYTES;
+    private static final int CHUNK_HEADER_SIZE = 5;
+    private static final int EXTERNAL_STREAM_FLAG = 128;
+    private static final int EXTERNAL_CHUNK_THRESHOLD = 256;
+    private static final int LOCK_STRIPES = 32;
+    // the sector area is mapped in segments of this size, each once the file covers it completely
+    private static final int SEGMENT_SHIFT = 20;
+    private static final int SEGMENT_BYTES = 1 << SEGMENT_SHIFT;
+    private static final ChunkData CORRUPT_CHUNK_DATA = new ChunkData((byte)0, null, false);
+
+    private static final VarHandle HEADER_DIRTY_HANDLE;
+    static {
+        try {
+            HEADER_DIRTY_HANDLE = MethodHandles.lookup().findVarHandle(MappedRegionFile.class, "headerDirty", boolean.class);
+        } catch (final ReflectiveOperationException ex) {
+            throw new ExceptionInInitializerError(ex);
+        }
+    }
+
+    private final RegionStorageInfo info;
+    private final Path path;
+    private final Path externalFileDir;
+    private final RegionFileVersion version;
+    private final boolean sync;
+    private final FileChannel channel;
+    private final MappedByteBuffer header;
+    private final ReentrantReadWriteLock[] locks = new ReentrantReadWriteLock[LOCK_STRIPES];
+    private final Object mappingLock = new Object();
+    private volatile MappedByteBuffer[] segments = new MappedByteBuffer[0];
+    private volatile boolean headerDirty;
+    private volatile boolean closed;
+    private int @Nullable [] recalculatedHeader; // no initializer, set while the superclass constructor runs
+
+    public MappedRegionFile(final RegionStorageInfo info, final Path path, final Path externalFileDir, final boolean sync) throws IOException {
+        super(info, path, externalFileDir, sync);
+        this.info = info;
+        this.path = path;
+        this.externalFileDir = externalFileDir;
+        this.version = RegionFileVersion.getCompressionFormat(externalFileDir);
+        this.sync = sync;
+        for (int i = 0; i < LOCK_STRIPES; ++i) {
+            this.locks[i] = new ReentrantReadWriteLock();
+        }
+
+        // the superclass has validated (and possibly recalculated) the header and populated usedSectors,
+        // so the header on disk is now authoritative
+        this.channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            // mapping READ_WRITE past the end of the file extends it, which gives new files a zeroed header
+            this.header = this.channel.map(FileChannel.MapMode.READ_WRITE, 0L, HEADER_BYTES);
+        } catch (final IOException ex) {
+            this.channel.close();
+            throw ex;
+        }
+        if (this.recalculatedHeader != null) {
+            this.header.asIntBuffer().put(this.recalculatedHeader);
+            this.recalculatedHeader = null;
+            this.flushHeader(true);
+        }
+    }
+
+    /**
+     * Opens the region file for the given storage, using the backend configured for the storage's world.
+     */
+    public static RegionFile open(final RegionStorageInfo info, final Path path, final Path externalFileDir, final boolean sync) throws IOException {
+        if (isEnabled(info)) {
+            return new MappedRegionFile(info, path, externalFileDir, sync);
+        }
+        return new RegionFile(info, path, externalFileDir, sync);
+    }
+
+    /**
+     * Returns whether the memory-mapped backend is configured for the given storage.
+     */
+    public static boolean isEnabled(final RegionStorageInfo info) {
+        return getConfiguredBackend(info) == Boolean.TRUE;
+    }
+
+    /**
+     * Returns whether the memory-mapped backend is configured for the given storage, or {@code null} if the world of the
+     * storage is not registered yet.
+     */
+    public static @Nullable Boolean getConfiguredBackend(final RegionStorageInfo info) {
+        final MoonriseRegionFileIO.RegionFileType type = switch (info.type()) {
+            case "chunk" -> MoonriseRegionFileIO.RegionFileType.CHUNK_DATA;
+            case "poi" -> MoonriseRegionFileIO.RegionFileType.POI_DATA;
+            case "entities" -> MoonriseRegionFileIO.RegionFileType.ENTITY_DATA;
+            default -> null;
+        };
+        final MinecraftServer server = MinecraftServer.getServer();
+        final ServerLevel level = type == null || server == null ? null : server.getLevel(info.dimension());
+        if (level == null) {
+            // not a world storage (i.e upgrade or recovery tooling), or the world is not registered yet
+            return type == null ? Boolean.FALSE : null;
+        }
+        return level.paperConfig().chunks.regionFileBackend.get(type) == WorldConfiguration.Chunks.RegionFileBackends.RegionFileBackend.MEMORY_MAPPED;
+    }
+
+    private static int getOffsetIndex(final ChunkPos pos) {
+        return pos.getRegionLocalX() + pos.getRegionLocalZ() * 32;
+    }
+
+    private static int getSectorNumber(final int packedOffset) {
+        return packedOffset >>> 8;
+    }
+
+    private static int getNumSectors(final int packedOffset) {
+        return packedOffset & 255;
+    }
+
+    private static int sizeToSectors(final int size) {
+        return (size + SECTOR_BYTES - 1) / SECTOR_BYTES;
+    }
+
+    private static boolean isExternalStreamChunk(final byte versionByte) {
+        return (versionByte & EXTERNAL_STREAM_FLAG) != 0;
+    }
+
+    private ReentrantReadWriteLock getLock(final int index) {
+        return this.locks[index & (LOCK_STRIPES - 1)];
+    }
+
+    private int getOffset(final int index) {
+        return this.header.getInt(index * Integer.BYTES);
+    }
+
+    private Path getExternalChunkPath(final ChunkPos pos) {
+        return this.externalFileDir.resolve("c." + pos.x + "." + pos.z + ".mcc"); // diff on change, RegionFile#getExternalChunkPath
+    }
+
+    // returns the mapped segment with the given index, or null if the file does not cover all of it yet
+    private @Nullable MappedByteBuffer segment(final int index) throws IOException {
+        MappedByteBuffer[] segments = this.segments;
+        if (index < segments.length) {
+            return segments[index];
+        }
+        synchronized (this.mappingLock) {
+            segments = this.segments;
+            if (index < segments.length) {
+                return segments[index];
+            }
+            final long complete = this.channel.size() >>> SEGMENT_SHIFT;
+            if (index >= complete) {
+                return null;
+            }
+            // segments are mapped once and kept, growing the file only maps the segments it completed
+            final MappedByteBuffer[] grown = Arrays.copyOf(segments, (int)complete);
+            for (int i = segments.length; i < grown.length; ++i) {
+                grown[i] = this.channel.map(FileChannel.MapMode.READ_ONLY, (long)i << SEGMENT_SHIFT, SEGMENT_BYTES);
+            }
+            this.segments = grown;
+            return grown[index];
+        }
+    }
+
+    // returns a view of [from, to) of the file, or null if the file is smaller than that
+    private @Nullable ByteBuffer view(final long from, final long to) throws IOException {
+        final int first = (int)(from >>> SEGMENT_SHIFT);
+        if (first == (int)((to - 1) >>> SEGMENT_SHIFT)) {
+            final MappedByteBuffer segment = this.segment(first);
+            if (segment != null) {
+                return segment.slice((int)(from & (SEGMENT_BYTES - 1)), (int)(to - from));
+            }
+        }
+
+        // spans several segments, or the last segment which is not mapped yet
+        if (this.channel.size() < to) {
+            return null;
+        }
+        final ByteBuffer ret = ByteBuffer.allocate((int)(to - from));
+        while (ret.hasRemaining()) {
+            final long position = from + ret.position();
+            final MappedByteBuffer segment = this.segment((int)(position >>> SEGMENT_SHIFT));
+            if (segment == null) {
+                if (this.channel.read(ret, position) < 0) {
+                    return null;
+                }
+                continue;
+            }
+            final int start = (int)(position & (SEGMENT_BYTES - 1));
+            ret.put(segment.slice(start, Math.min(ret.remaining(), SEGMENT_BYTES - start)));
+        }
+        return ret.flip();
+    }
+
+    @Override
+    public @Nullable DataInputStream getChunkDataInputStream(final ChunkPos pos) throws IOException {
+        final @Nullable ChunkData chunk = this.readChunkData(pos);
+        if (chunk == null) {
+            return null;
+        }
+        // Paper start - recalculate header on regionfile corruption
+        if (chunk == CORRUPT_CHUNK_DATA) {
+            return this.recalculateHeaderAndRetry(pos);
+        }
+        if (chunk.mixedStreams() && this.tryRecalculateHeader()) {
+            return this.getChunkDataInputStream(pos);
+        }
+        // Paper end - recalculate header on regionfile corruption
+
+        final @Nullable DataInputStream ret;
+        if (chunk.data() == null) {
+            ret = this.createExternalChunkInputStream(pos, (byte)(chunk.versionByte() & ~EXTERNAL_STREAM_FLAG));
+        } else {
+            JvmProfiler.INSTANCE.onRegionFileRead(this.info, pos, this.version, chunk.data().length);
+            ret = this.createChunkInputStream(pos, chunk.versionByte(), new ByteArrayInputStream(chunk.data()));
+        }
+        // Paper start - recalculate header on regionfile corruption
+        if (ret == null) {
+            return this.recalculateHeaderAndRetry(pos);
+        }
+        // Paper end - recalculate header on regionfile corruption
+        return ret;
+    }
+
+    // the stripe lock of the chunk must not be held, recalculating the header takes all of them
+    private @Nullable DataInputStream recalculateHeaderAndRetry(final ChunkPos pos) throws IOException {
+        if (this.tryRecalculateHeader()) {
+            return this.getChunkDataInputStream(pos);
+        }
+        return null;
+    }
+
+    // reads the chunk while holding its lock, CORRUPT_CHUNK_DATA if the header or the chunk is corrupt
+    private @Nullable ChunkData readChunkData(final ChunkPos pos) throws IOException {
+        final int index = getOffsetIndex(pos);
+        final ReentrantReadWriteLock.ReadLock lock = this.getLock(index).readLock();
+        lock.lock();
+        try {
+            final int offset = this.getOffset(index);
+            if (offset == 0) {
+                return null;
+            }
+
+            final long sectorStart = (long)getSectorNumber(offset) * SECTOR_BYTES;
+            int numSectors = getNumSectors(offset);
+            if (numSectors == 255) {
+                // Spigot - oversized chunk, the proper length is stored in the section itself
+                final ByteBuffer length = this.view(sectorStart, sectorStart + Integer.BYTES);
+                if (length == null) {
+                    LOGGER.error("Chunk {} header is truncated in {}", pos, this.path);
+                    return CORRUPT_CHUNK_DATA;
+                }
+                numSectors = (length.getInt(0) + Integer.BYTES) / SECTOR_BYTES + 1;
+            }
+
+            final long fileSize = this.channel.size();
+            final @Nullable ByteBuffer chunk = sectorStart >= fileSize ? null : this.view(sectorStart, Math.min(sectorStart + (long)numSectors * SECTOR_BYTES, fileSize));
+            if (chunk == null || chunk.remaining() < CHUNK_HEADER_SIZE) {
+                LOGGER.error("Chunk {} header is truncated in {}", pos, this.path);
+                return CORRUPT_CHUNK_DATA;
+            }
+
+            final int length = chunk.getInt(0);
+            final byte versionByte = chunk.get(4);
+            if (length == 0) {
+                LOGGER.warn("Chunk {} is allocated, but stream is missing", pos);
+                return CORRUPT_CHUNK_DATA;
+            }
+
+            final int dataLength = length - 1;
+            if (isExternalStreamChunk(versionByte)) {
+                if (dataLength != 0) {
+                    LOGGER.warn("Chunk has both internal and external streams");
+                    return new ChunkData(versionByte, null, true);
+                }
+                return new ChunkData(versionByte, null, false);
+            } else if (dataLength > chunk.remaining() - CHUNK_HEADER_SIZE) {
+                LOGGER.error("Chunk {} stream is truncated: expected {} but read {}", pos, dataLength, chunk.remaining() - CHUNK_HEADER_SIZE);
+                return CORRUPT_CHUNK_DATA;
+            } else if (dataLength < 0) {
+                LOGGER.error("Declared size {} of chunk {} is negative", length, pos);
+                return CORRUPT_CHUNK_DATA;
+            }
+            // must copy while holding the lock, the sectors may be re-used once a newer version is written
+            final byte[] data = new byte[dataLength];
+            chunk.get(CHUNK_HEADER_SIZE, data);
+            return new ChunkData(versionByte, data, false);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // data is null for chunks stored in an external file
+    private record ChunkData(byte versionByte, byte @Nullable [] data, boolean mixedStreams) {
+    }
+
+    private @Nullable DataInputStream createChunkInputStream(final ChunkPos pos, final byte versionByte, final InputStream input) throws IOException {
+        final RegionFileVersion version = RegionFileVersion.fromId(versionByte);
+        if (version == null) {
+            LOGGER.error("Chunk {} has invalid chunk stream version {}", pos, versionByte);
+            return null;
+        }
+        return new DataInputStream(version.wrap(input));
+    }
+
+    private @Nullable DataInputStream createExternalChunkInputStream(final ChunkPos pos, final byte versionByte) throws IOException {
+        final Path external = this.getExternalChunkPath(pos);
+        if (!Files.isRegularFile(external)) {
+            LOGGER.error("External chunk path {} is not file", external);
+            return null;
+        }
+        final DataInputStream ret = this.createChunkInputStream(pos, versionByte, Files.newInputStream(external));
+        return ret == null ? null : new ExternalChunkStreamMarker(ret);
+    }
+
+    @Override
+    public boolean doesChunkExist(final ChunkPos pos) {
+        final int index = getOffsetIndex(pos);
+        final ReentrantReadWriteLock.ReadLock lock = this.getLock(index).readLock();
+        lock.lock();
+        try {
+            final int offset = this.getOffset(index);
+            if (offset == 0) {
+                return false;
+            }
+            final long sectorStart = (long)getSectorNumber(offset) * SECTOR_BYTES;
+            final ByteBuffer chunk = this.view(sectorStart, sectorStart + CHUNK_HEADER_SIZE);
+            if (chunk == null) {
+                return false;
+            }
+            final int length = chunk.getInt(0);
+            final byte versionByte = chunk.get(4);
+            if (isExternalStreamChunk(versionByte)) {
+                return RegionFileVersion.isValidVersion(versionByte & ~EXTERNAL_STREAM_FLAG) && Files.isRegularFile(this.getExternalChunkPath(pos));
+            }
+            return RegionFileVersion.isValidVersion(versionByte) && length != 0 && length - 1 >= 0;
+        } catch (final IOException ex) {
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean hasChunk(final ChunkPos pos) {
+        final int index = getOffsetIndex(pos);
+        final ReentrantReadWriteLock.ReadLock lock = this.getLock(index).readLock();
+        lock.lock();
+        try {
+            return this.getOffset(index) != 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    protected void write(final ChunkPos pos, final ByteBuffer chunkData) throws IOException {
+        final int index = getOffsetIndex(pos);
+        final int length = chunkData.remaining();
+        final Path external = this.getExternalChunkPath(pos);
+
+        int sectorCount = sizeToSectors(length);
+        final boolean isExternal = sectorCount >= EXTERNAL_CHUNK_THRESHOLD;
+        Path externalTemp = null;
+        if (isExternal) {
+            LOGGER.warn("{} Saving oversized chunk {} ({} bytes} to external file {}", this.path, pos, length, external);
+            sectorCount = 1;
+            externalTemp = Files.createTempFile(this.externalFileDir, "tmp", null);
+            try (final FileChannel out = FileChannel.open(externalTemp, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                out.write(chunkData.position(CHUNK_HEADER_SIZE));
+            }
+        }
+
+        final ByteBuffer toWrite;
+        if (isExternal) {
+            toWrite = ByteBuffer.allocate(CHUNK_HEADER_SIZE);
+            toWrite.putInt(1);
+            toWrite.put((byte)(this.version.getId() | EXTERNAL_STREAM_FLAG));
+            toWrite.flip();
+        } else {
+            toWrite = chunkData;
+        }
+
+        // a header recalculation must not see the allocated sectors before they are published in the header,
+        // as it would mark them free again
+        synchronized (this) {
+            final int sectorStart = this.usedSectors.allocate(sectorCount);
+            boolean published = false;
+            try {
+                long position = (long)sectorStart * SECTOR_BYTES;
+                while (toWrite.hasRemaining()) {
+                    position += this.channel.write(toWrite, position);
+                }
+
+                final int previous;
+                final ReentrantReadWriteLock.WriteLock lock = this.getLock(index).writeLock();
+                lock.lock();
+                try {
+                    previous = this.getOffset(index);
+                    this.header.putInt(index * Integer.BYTES, (sectorStart << 8) | sectorCount);
+                    this.header.putInt(SECTOR_BYTES + index * Integer.BYTES, (int)(System.currentTimeMillis() / 1000L));
+                    HEADER_DIRTY_HANDLE.setVolatile(this, true);
+                    published = true;
+
+                    if (isExternal) {
+                        Files.move(externalTemp, external, StandardCopyOption.REPLACE_EXISTING);
+                    } else {
+                        Files.deleteIfExists(external);
+                    }
+                } finally {
+                    lock.unlock();
+                }
+
+                if (previous != 0) {
+                    this.usedSectors.free(getSectorNumber(previous), getNumSectors(previous));
+                }
+            } finally {
+                if (!published) {
+                    this.usedSectors.free(sectorStart, sectorCount);
+                }
+            }
+        }
+
+        if (this.sync) {
+            this.flushHeader();
+        }
+    }
+
+    @Override
+    public void clear(final ChunkPos pos) throws IOException {
+        final int index = getOffsetIndex(pos);
+        // like write, the header and the used sectors must change together
+        synchronized (this) {
+            final int previous;
+            final ReentrantReadWriteLock.WriteLock lock = this.getLock(index).writeLock();
+            lock.lock();
+            try {
+                previous = this.getOffset(index);
+                if (previous == 0) {
+                    return;
+                }
+                this.header.putInt(index * Integer.BYTES, 0);
+                this.header.putInt(SECTOR_BYTES + index * Integer.BYTES, 0);
+                HEADER_DIRTY_HANDLE.setVolatile(this, true);
+                Files.deleteIfExists(this.getExternalChunkPath(pos));
+            } finally {
+                lock.unlock();
+            }
+
+            this.usedSectors.free(getSectorNumber(previous), getNumSectors(previous));
+        }
+
+        if (this.sync) {
+            this.flushHeader();
+        }
+    }
+
+    private void flushHeader() {
+        this.flushHeader(false);
+    }
+
+    private void flushHeader(final boolean force) {
+        if ((boolean)HEADER_DIRTY_HANDLE.compareAndExchange(this, true, false) || force) {
+            this.header.force();
+        }
+    }
+
+    @Override
+    protected void onHeaderRecalculated(final IntBuffer offsets, final IntBuffer timestamps) throws IOException {
+        final int[] recalculated = new int[2 * SECTOR_INTS];
+        offsets.get(0, recalculated, 0, SECTOR_INTS);
+        timestamps.get(0, recalculated, SECTOR_INTS, SECTOR_INTS);
+        if (this.header == null) {
+            // recalculated while opening, applied once the header is mapped
+            this.recalculatedHeader = recalculated;
+            return;
+        }
+
+        // the superclass holds the monitor while recalculating, which every write and clear holds from allocating or
+        // freeing sectors until the header is updated
+        for (final ReentrantReadWriteLock lock : this.locks) {
+            lock.writeLock().lock();
+        }
+        try {
+            this.header.asIntBuffer().put(0, recalculated);
+        } finally {
+            for (final ReentrantReadWriteLock lock : this.locks) {
+                lock.writeLock().unlock();
+            }
+        }
+        this.flushHeader(true);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (this.header == null) {
+            // called by the superclass constructor while recalculating a corrupt header
+            super.flush();
+            return;
+        }
+        if (this.closed) {
+            return;
+        }
+        this.flushHeader();
+        this.channel.force(true);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (this.closed) {
+            return;
+        }
+        this.closed = true;
+        try {
+            this.flushHeader();
+            this.channel.force(true);
+        } finally {
+            try {
+                this.channel.close();
+            } finally {
+                this.segments = new MappedByteBuffer[0];
+                super.close();
+            }
+        }
+    }
+}
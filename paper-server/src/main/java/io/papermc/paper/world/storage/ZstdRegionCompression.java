@@ -0,0 +1,397 @@
+package io.papermc.paper.world.storage;
+
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdDictCompress;
+import com.github.luben.zstd.ZstdDictDecompress;
+import com.github.luben.zstd.ZstdDictTrainer;
+import com.github.luben.zstd.ZstdInputStreamNoFinalizer;
+import com.github.luben.zstd.ZstdOutputStreamNoFinalizer;
+import com.mojang.logging.LogUtils;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.chunk.storage.RegionFile;
+import net.minecraft.world.level.chunk.storage.RegionFileVersion;
+import net.minecraft.world.level.chunk.storage.RegionStorageInfo;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+
+/**
+ * Zstd compression for region files, optionally using a dictionary trained from the chunks of the world.
+ * <p>
+ * Each region folder ({@code region}, {@code poi} and {@code entities}) may have dictionaries stored beside it
+ * as {@code <folder>.<id>.zstdict}. Every zstd frame records the id of the dictionary it was written with, so reads
+ * look the dictionary up by that id rather than by folder. All dictionaries of a folder are therefore loaded whenever
+ * a region file is opened, regardless of the configured compression format, so that worlds can be switched back.
+ * </p>
+ * <p>
+ * Only the most recently trained dictionary is used to write chunks. Older dictionaries are kept, as chunks written
+ * with them may still exist, and are never replaced or deleted.
+ * </p>
+ */
+public final class ZstdRegionCompression {
+
+    private static final Logger LOGGER = LogUtils.getClassLogger();
+
+    /**
+     * Region file stream version used for zstd compressed chunks, not used by vanilla.
+     */
+    public static final int VERSION_ID = 53;
+    public static final String DICTIONARY_EXTENSION = ".zstdict";
+
+    private static final int COMPRESSION_LEVEL = Zstd.defaultCompressionLevel();
+    private static final int DICTIONARY_SIZE = 112 * 1024;
+    // zstd recommends roughly 100 times the dictionary size worth of samples
+    private static final int SAMPLE_BUFFER_SIZE = 100 * DICTIONARY_SIZE;
+    private static final int MIN_SAMPLES = 128;
+    private static final int SECTOR_BYTES = 4096;
+    private static final Pattern REGION_FILE_PATTERN = Pattern.compile("^r\\.(-?[0-9]+)\\.(-?[0-9]+)\\.mca$");
+    private static final Pattern DICTIONARY_ID_PATTERN = Pattern.compile("^[0-9]+$");
+
+    // dictionary id -> decompression dictionary, shared by every world
+    private static final Map<Long, LoadedDictionary> DECOMPRESSION_DICTIONARIES = new ConcurrentHashMap<>();
+    // region folder -> version used to write new chunks
+    private static final Map<Path, RegionFileVersion> VERSIONS = new ConcurrentHashMap<>();
+
+    private ZstdRegionCompression() {
+    }
+
+    public static Path getDictionaryPath(final Path folder, final long id) {
+        return folder.resolveSibling(folder.getFileName().toString() + "." + id + DICTIONARY_EXTENSION);
+    }
+
+    /**
+     * {@return the dictionaries stored for the specified region folder, the most recently trained one last}
+     */
+    public static List<Path> listDictionaries(final Path folder) throws IOException {
+        final Path parent = folder.toAbsolutePath().getParent();
+        if (parent == null || !Files.isDirectory(parent)) {
+            return new ArrayList<>();
+        }
+        final String prefix = folder.getFileName().toString() + ".";
+        final List<Path> ret;
+        try (final Stream<Path> files = Files.list(parent)) {
+            ret = new ArrayList<>(files.filter((final Path path) -> {
+                final String name = path.getFileName().toString();
+                return name.startsWith(prefix) && name.endsWith(DICTIONARY_EXTENSION)
+                    && DICTIONARY_ID_PATTERN.matcher(name.substring(prefix.length(), name.length() - DICTIONARY_EXTENSION.length())).matches()
+                    && Files.isRegularFile(path);
+            }).toList());
+        }
+        final Map<Path, FileTime> modified = new HashMap<>();
+        for (final Path path : ret) {
+            modified.put(path, Files.getLastModifiedTime(path));
+        }
+        ret.sort(Comparator.comparing(modified::get).thenComparing(Path::getFileName));
+        return ret;
+    }
+
+    /**
+     * Returns the region file version to write zstd compressed chunks in the specified region folder with,
+     * loading the dictionary of the folder if it has not been loaded yet.
+     */
+    public static RegionFileVersion getVersion(final Path folder) {
+        return VERSIONS.computeIfAbsent(normalize(folder), ZstdRegionCompression::loadVersion);
+    }
+
+    private static Path normalize(final Path folder) {
+        return folder.toAbsolutePath().normalize();
+    }
+
+    private static RegionFileVersion loadVersion(final Path folder) {
+        final List<Path> dictionaries;
+        try {
+            dictionaries = listDictionaries(folder);
+        } catch (final IOException ex) {
+            LOGGER.error("Failed to list zstd dictionaries of {}, chunks written with them will not be readable", folder, ex);
+            return RegionFileVersion.VERSION_ZSTD;
+        }
+        // every dictionary has to be registered for reading, the newest one is used to write
+        RegionFileVersion ret = RegionFileVersion.VERSION_ZSTD;
+        for (final Path dictionaryPath : dictionaries) {
+            try {
+                ret = createVersion(Files.readAllBytes(dictionaryPath), dictionaryPath);
+            } catch (final IOException | RuntimeException ex) {
+                LOGGER.error("Failed to load zstd dictionary {}, chunks written with it will not be readable", dictionaryPath, ex);
+                ret = RegionFileVersion.VERSION_ZSTD;
+            }
+        }
+        return ret;
+    }
+
+    private static RegionFileVersion createVersion(final byte[] dictionary, final Path source) {
+        final long id = Zstd.getDictIdFromDict(dictionary);
+        if (id == 0L) {
+            throw new IllegalArgumentException("Not a zstd dictionary: " + source);
+        }
+        final LoadedDictionary loaded = DECOMPRESSION_DICTIONARIES.computeIfAbsent(id, (final Long key) -> new LoadedDictionary(dictionary, new ZstdDictDecompress(dictionary)));
+        if (!Arrays.equals(loaded.data(), dictionary)) {
+            // Ids are random 32-bit values, so a collision between two different dictionaries is very unlikely.
+            // Writing with this dictionary would produce chunks that are read back with the other one, so don't.
+            LOGGER.warn("Zstd dictionary {} has the same id ({}) as another loaded dictionary, it will not be used. Retrain it with /paper zstd train", source, id);
+            return RegionFileVersion.VERSION_ZSTD;
+        }
+        return RegionFileVersion.createZstd(new ZstdDictCompress(dictionary, COMPRESSION_LEVEL));
+    }
+
+    public static InputStream wrapInput(final InputStream input) throws IOException {
+        final byte[] data;
+        try (input) {
+            data = input.readAllBytes();
+        }
+        final long dictionaryId = Zstd.getDictIdFromFrame(data);
+        final ZstdInputStreamNoFinalizer ret = new ZstdInputStreamNoFinalizer(new ByteArrayInputStream(data));
+        if (dictionaryId != 0L) {
+            final LoadedDictionary dictionary = DECOMPRESSION_DICTIONARIES.get(dictionaryId);
+            if (dictionary == null) {
+                ret.close();
+                throw new IOException("Chunk was compressed with unknown zstd dictionary " + dictionaryId);
+            }
+            ret.setDict(dictionary.decompress());
+        }
+        return ret;
+    }
+
+    public static OutputStream wrapOutput(final OutputStream output, final @Nullable ZstdDictCompress dictionary) throws IOException {
+        final ZstdOutputStreamNoFinalizer ret = new ZstdOutputStreamNoFinalizer(output, COMPRESSION_LEVEL);
+        if (dictionary != null) {
+            ret.setDict(dictionary);
+        }
+        return ret;
+    }
+
+    /**
+     * Trains a dictionary from the chunks stored in the specified region folder and installs it. Chunks are
+     * read without locking, so this is safe to use on the folders of loaded worlds: chunks being written
+     * concurrently are simply skipped. Region files which are already open keep using their previous dictionary
+     * until they are closed. The previous dictionaries stay registered, chunks written with them remain readable.
+     *
+     * @return the number of samples the dictionary was trained with, or {@code 0} if there were not enough chunks
+     */
+    public static int train(final Path folder) throws IOException {
+        final ZstdDictTrainer trainer = new ZstdDictTrainer(SAMPLE_BUFFER_SIZE, DICTIONARY_SIZE);
+        final List<Path> regionFiles = listRegionFiles(folder);
+        // spread the samples over the whole world rather than only the first few region files
+        Collections.shuffle(regionFiles);
+
+        int samples = 0;
+        sample_loop:
+        for (final Path regionFile : regionFiles) {
+            try (final FileChannel channel = FileChannel.open(regionFile, StandardOpenOption.READ)) {
+                final ByteBuffer header = ByteBuffer.allocate(SECTOR_BYTES);
+                if (readFully(channel, header, 0L) != SECTOR_BYTES) {
+                    continue;
+                }
+                for (int i = 0; i < SECTOR_BYTES / 4; ++i) {
+                    final byte[] sample = readSample(channel, header.getInt(i * 4));
+                    if (sample == null) {
+                        continue;
+                    }
+                    if (!trainer.addSample(sample)) {
+                        break sample_loop;
+                    }
+                    ++samples;
+                }
+            } catch (final IOException ex) {
+                LOGGER.warn("Failed to sample region file {} for zstd dictionary training", regionFile, ex);
+            }
+        }
+
+        if (samples < MIN_SAMPLES) {
+            return 0;
+        }
+
+        final byte[] dictionary = trainer.trainSamples();
+        final long id = Zstd.getDictIdFromDict(dictionary);
+        final Path dictionaryPath = getDictionaryPath(folder, id);
+        if (Files.exists(dictionaryPath)) {
+            // never replace a dictionary, chunks may still be compressed with it
+            throw new IOException("Zstd dictionary " + dictionaryPath + " already exists, train again to get a different id");
+        }
+        final Path temp = dictionaryPath.resolveSibling(dictionaryPath.getFileName() + ".tmp");
+        Files.write(temp, dictionary);
+        Files.move(temp, dictionaryPath, StandardCopyOption.ATOMIC_MOVE);
+
+        VERSIONS.put(normalize(folder), createVersion(dictionary, dictionaryPath));
+        return samples;
+    }
+
+    private static byte @Nullable [] readSample(final FileChannel channel, final int offset) {
+        final int sector = offset >>> 8;
+        final int sectors = offset & 0xFF;
+        if (offset == 0 || sector < 2 || sectors == 0 || sectors == 0xFF) {
+            // absent, invalid or oversized, oversized chunks would not fit the sample buffer anyway
+            return null;
+        }
+        try {
+            final ByteBuffer data = ByteBuffer.allocate(sectors * SECTOR_BYTES);
+            final int read = readFully(channel, data, (long)sector * SECTOR_BYTES);
+            if (read < 5) {
+                return null;
+            }
+            final int length = data.getInt(0);
+            final byte version = data.get(4);
+            final RegionFileVersion regionFileVersion = RegionFileVersion.fromId(version);
+            if (length <= 1 || length - 1 > read - 5 || regionFileVersion == null) {
+                // external chunk, or torn by a concurrent write
+                return null;
+            }
+            try (final InputStream input = regionFileVersion.wrap(new ByteArrayInputStream(data.array(), 5, length - 1))) {
+                return input.readAllBytes();
+            }
+        } catch (final IOException ex) {
+            return null;
+        }
+    }
+
+    private static int readFully(final FileChannel channel, final ByteBuffer buffer, final long position) throws IOException {
+        int total = 0;
+        while (buffer.hasRemaining()) {
+            final int read = channel.read(buffer, position + total);
+            if (read < 0) {
+                break;
+            }
+            total += read;
+        }
+        return total;
+    }
+
+    private static List<Path> listRegionFiles(final Path folder) throws IOException {
+        if (!Files.isDirectory(folder)) {
+            return new ArrayList<>();
+        }
+        try (final Stream<Path> files = Files.list(folder)) {
+            return new ArrayList<>(files.filter((final Path path) -> REGION_FILE_PATTERN.matcher(path.getFileName().toString()).matches()).toList());
+        }
+    }
+
+    /**
+     * Rewrites every region file in the specified folder using zstd and the newest dictionary of the folder, training
+     * one first if none exists yet. The world owning the folder must not be loaded.
+     */
+    public static RecompressResult recompress(final String worldName, final ResourceKey<Level> dimension, final Path folder, final String type) throws IOException {
+        if (listDictionaries(folder).isEmpty()) {
+            train(folder);
+        }
+        final RegionFileVersion version = getVersion(folder);
+        final RegionStorageInfo info = new RegionStorageInfo(worldName, dimension, type);
+
+        long bytesBefore = 0L;
+        long bytesAfter = 0L;
+        int regions = 0;
+        int chunks = 0;
+        int failedRegions = 0;
+        for (final Path regionFile : listRegionFiles(folder)) {
+            final Matcher matcher = REGION_FILE_PATTERN.matcher(regionFile.getFileName().toString());
+            if (!matcher.matches()) {
+                continue;
+            }
+            final int regionX = Integer.parseInt(matcher.group(1));
+            final int regionZ = Integer.parseInt(matcher.group(2));
+            final Path temp = regionFile.resolveSibling(regionFile.getFileName() + ".recompress");
+            // oversized chunks of the target must not replace the external files of the source before it is committed
+            final Path tempExternal = regionFile.resolveSibling(regionFile.getFileName() + ".recompress-external");
+            Files.deleteIfExists(temp);
+            deleteDirectory(tempExternal);
+            Files.createDirectories(tempExternal);
+
+            final long sizeBefore = Files.size(regionFile);
+            final List<ChunkPos> writtenChunks = new ArrayList<>();
+            boolean failed = false;
+            try (final RegionFile source = new RegionFile(info, regionFile, folder, false);
+                 final RegionFile target = new RegionFile(info, temp, tempExternal, version, false)) {
+                for (int i = 0; i < 32 * 32 && !failed; ++i) {
+                    final ChunkPos pos = new ChunkPos((regionX << 5) | (i & 31), (regionZ << 5) | (i >>> 5));
+                    if (!source.hasChunk(pos)) {
+                        continue;
+                    }
+                    final byte[] data;
+                    try (final DataInputStream input = source.getChunkDataInputStream(pos)) {
+                        if (input == null) {
+                            failed = true;
+                            continue;
+                        }
+                        data = input.readAllBytes();
+                    }
+                    try (final DataOutputStream output = target.getChunkDataOutputStream(pos)) {
+                        output.write(data);
+                    }
+                    writtenChunks.add(pos);
+                }
+            } catch (final IOException ex) {
+                LOGGER.error("Failed to recompress region file {}", regionFile, ex);
+                failed = true;
+            }
+
+            if (failed) {
+                // leave the original untouched, never drop chunks we could not read
+                LOGGER.warn("Skipping recompression of region file {}, not all chunks could be read", regionFile);
+                Files.deleteIfExists(temp);
+                deleteDirectory(tempExternal);
+                ++failedRegions;
+                continue;
+            }
+
+            Files.move(temp, regionFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            // the committed region decides which chunks are external now, replace or drop their previous files
+            for (final ChunkPos pos : writtenChunks) {
+                final String externalName = "c." + pos.x + "." + pos.z + ".mcc";
+                final Path external = tempExternal.resolve(externalName);
+                if (Files.exists(external)) {
+                    Files.move(external, folder.resolve(externalName), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } else {
+                    Files.deleteIfExists(folder.resolve(externalName));
+                }
+            }
+            deleteDirectory(tempExternal);
+            bytesBefore += sizeBefore;
+            bytesAfter += Files.size(regionFile);
+            ++regions;
+            chunks += writtenChunks.size();
+        }
+
+        return new RecompressResult(regions, chunks, failedRegions, bytesBefore, bytesAfter);
+    }
+
+    private static void deleteDirectory(final Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (final Stream<Path> files = Files.list(directory)) {
+            for (final Path file : files.toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+        Files.deleteIfExists(directory);
+    }
+
+    private record LoadedDictionary(byte[] data, ZstdDictDecompress decompress) {
+    }
+
+    public record RecompressResult(int regions, int chunks, int failedRegions, long bytesBefore, long bytesAfter) {
+    }
+}
@@ -0,0 +1,200 @@
+package io.papermc.paper.world.upgrade;
+
+import ca.spottedleaf.concurrentutil.util.Priority;
+import ca.spottedleaf.dataconverter.minecraft.util.Version;
+import ca.spottedleaf.moonrise.common.PlatformHooks;
+import com.mojang.logging.LogUtils;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.IntTag;
+import net.minecraft.nbt.Tag;
+import net.minecraft.nbt.visitors.CollectFields;
+import net.minecraft.nbt.visitors.FieldSelector;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.chunk.ChunkAccess;
+import net.minecraft.world.level.chunk.status.ChunkStatus;
+import net.minecraft.world.level.chunk.storage.ChunkStorage;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+
+/**
+ * Upgrades the chunks of a loaded world in the background, so that players do not have to wait for the conversion
+ * of old chunks when they first visit them.
+ * <p>
+ * Chunk data on disk is owned by the chunk system while the world is loaded, so this upgrader never writes region
+ * files itself. It only reads the data version of every stored chunk and loads the outdated ones through the chunk
+ * system at the lowest priority, without generating anything. The chunk system converts them on its worker threads
+ * like any other chunk load, and saves them in the current format when they unload again. Entity and POI data are
+ * still converted when their chunks are loaded, use the offline upgrade ({@code --forceUpgrade}) to convert those too.
+ */
+@NullMarked
+public final class OnlineWorldUpgrader implements Runnable {
+
+    private static final Logger LOGGER = LogUtils.getClassLogger();
+
+    private static final Pattern REGION_FILE_PATTERN = Pattern.compile("^r\\.(-?[0-9]+)\\.(-?[0-9]+)\\.mca$");
+    private static final Map<ServerLevel, OnlineWorldUpgrader> RUNNING = new ConcurrentHashMap<>();
+    private static final long PENDING_LOAD_WAIT_MS = 1000L;
+
+    private final ServerLevel level;
+    private final Path dimensionFolder;
+    // bounds the chunks loaded only for the upgrade at any time
+    private final Semaphore pendingLoads = new Semaphore(Math.max(4, Runtime.getRuntime().availableProcessors() * 2));
+
+    private volatile boolean stopped;
+    private volatile int totalRegions;
+    private final AtomicInteger regionsDone = new AtomicInteger();
+    private final AtomicLong chunksScheduled = new AtomicLong();
+    private final AtomicLong chunksConverted = new AtomicLong();
+
+    private OnlineWorldUpgrader(final ServerLevel level) {
+        this.level = level;
+        this.dimensionFolder = level.levelStorageAccess.getDimensionPath(level.dimension());
+    }
+
+    /**
+     * Starts upgrading the specified level in the background.
+     *
+     * @param level the level to upgrade
+     * @return the new upgrader, or {@code null} if the level is already being upgraded
+     */
+    public static @Nullable OnlineWorldUpgrader start(final ServerLevel level) {
+        final OnlineWorldUpgrader upgrader = new OnlineWorldUpgrader(level);
+        if (RUNNING.putIfAbsent(level, upgrader) != null) {
+            return null;
+        }
+        final Thread thread = new Thread(upgrader, "Paper Online World Upgrader - " + level.getWorld().getName());
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.setUncaughtExceptionHandler((final Thread t, final Throwable thr) -> {
+            LOGGER.error("Online world upgrade of {} failed", level.getWorld().getName(), thr);
+            RUNNING.remove(level, upgrader);
+        });
+        thread.start();
+        return upgrader;
+    }
+
+    public static @Nullable OnlineWorldUpgrader get(final ServerLevel level) {
+        return RUNNING.get(level);
+    }
+
+    public void stop() {
+        this.stopped = true;
+    }
+
+    public String getStatus() {
+        final int total = this.totalRegions;
+        final int done = this.regionsDone.get();
+        return String.format(
+            Locale.ROOT, "%d/%d region files (%.1f%%), %d chunks scheduled, %d chunks converted",
+            done, total, total == 0 ? 0.0 : 100.0 * done / total, this.chunksScheduled.get(), this.chunksConverted.get()
+        );
+    }
+
+    private boolean shouldStop() {
+        return this.stopped || MinecraftServer.getServer().getLevel(this.level.dimension()) != this.level || !MinecraftServer.getServer().isRunning();
+    }
+
+    @Override
+    public void run() {
+        try (final WorldUpgradeProgress progress = WorldUpgradeProgress.load(this.dimensionFolder, WorldUpgradeProgress.ONLINE_FILE_NAME, "version=" + Version.getCurrentVersion() + " online")) {
+            final List<Path> regionFiles = listRegionFiles(this.dimensionFolder.resolve("region"));
+            this.totalRegions = regionFiles.size();
+            for (final Path regionFile : regionFiles) {
+                final String name = "region/" + regionFile.getFileName();
+                if (!progress.isFinished(name)) {
+                    final Matcher matcher = REGION_FILE_PATTERN.matcher(regionFile.getFileName().toString());
+                    if (!matcher.matches() || !this.upgradeRegion(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)))) {
+                        LOGGER.info("Stopped online world upgrade of {}: {}", this.level.getWorld().getName(), this.getStatus());
+                        return;
+                    }
+                    progress.markFinished(name);
+                }
+                this.regionsDone.incrementAndGet();
+            }
+            progress.complete();
+            LOGGER.info("Finished online world upgrade of {}: {}", this.level.getWorld().getName(), this.getStatus());
+        } catch (final IOException ex) {
+            LOGGER.error("Online world upgrade of {} failed", this.level.getWorld().getName(), ex);
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            RUNNING.remove(this.level, this);
+        }
+    }
+
+    // returns false if the upgrade was stopped before all chunks of the region were scheduled
+    private boolean upgradeRegion(final int regionX, final int regionZ) throws InterruptedException {
+        for (int i = 0; i < 32 * 32; ++i) {
+            if (this.shouldStop()) {
+                return false;
+            }
+            final ChunkPos pos = new ChunkPos((regionX << 5) | (i & 31), (regionZ << 5) | (i >>> 5));
+            if (!this.isOutdated(pos)) {
+                continue;
+            }
+
+            // loads of an unloading world may be dropped without calling back, never wait for them indefinitely
+            while (!this.pendingLoads.tryAcquire(PENDING_LOAD_WAIT_MS, TimeUnit.MILLISECONDS)) {
+                if (this.shouldStop()) {
+                    return false;
+                }
+            }
+            this.chunksScheduled.incrementAndGet();
+            PlatformHooks.get().scheduleChunkLoad(
+                this.level, pos.x, pos.z, false, ChunkStatus.EMPTY, true, Priority.LOWEST,
+                (final @Nullable ChunkAccess chunk) -> {
+                    try {
+                        if (chunk != null) {
+                            // loading converted the chunk, make sure the converted data is written back
+                            chunk.markUnsaved();
+                            this.chunksConverted.incrementAndGet();
+                        }
+                    } finally {
+                        this.pendingLoads.release();
+                    }
+                }
+            );
+        }
+        return true;
+    }
+
+    // reads only the data version of the chunk
+    private boolean isOutdated(final ChunkPos pos) {
+        final CollectFields collectFields = new CollectFields(new FieldSelector(IntTag.TYPE, "DataVersion"));
+        try {
+            this.level.getChunkSource().chunkMap.chunkScanner().scanChunk(pos, collectFields).join();
+        } catch (final Exception ex) {
+            LOGGER.warn("Failed to read the data version of chunk {} in world {}", pos, this.level.getWorld().getName(), ex);
+            return false;
+        }
+        final @Nullable Tag result = collectFields.getResult();
+        return result instanceof CompoundTag tag && ChunkStorage.getVersion(tag) < Version.getCurrentVersion();
+    }
+
+    private static List<Path> listRegionFiles(final Path folder) throws IOException {
+        if (!Files.isDirectory(folder)) {
+            return new ArrayList<>();
+        }
+        try (final Stream<Path> files = Files.list(folder)) {
+            return new ArrayList<>(files.filter((final Path path) -> REGION_FILE_PATTERN.matcher(path.getFileName().toString()).matches()).toList());
+        }
+    }
+}
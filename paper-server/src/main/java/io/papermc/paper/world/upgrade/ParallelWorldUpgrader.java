@@ -0,0 +1,309 @@
+package io.papermc.paper.world.upgrade;
+
+import ca.spottedleaf.dataconverter.minecraft.MCDataConverter;
+import ca.spottedleaf.dataconverter.minecraft.datatypes.MCDataType;
+import ca.spottedleaf.dataconverter.minecraft.datatypes.MCTypeRegistry;
+import ca.spottedleaf.dataconverter.minecraft.util.Version;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.mojang.logging.LogUtils;
+import com.mojang.serialization.MapCodec;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import net.minecraft.core.RegistryAccess;
+import net.minecraft.core.registries.Registries;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.ListTag;
+import net.minecraft.nbt.NbtIo;
+import net.minecraft.nbt.NbtUtils;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.util.datafix.DataFixers;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.chunk.ChunkGenerator;
+import net.minecraft.world.level.chunk.storage.ChunkStorage;
+import net.minecraft.world.level.chunk.storage.RegionFile;
+import net.minecraft.world.level.chunk.storage.RegionStorageInfo;
+import net.minecraft.world.level.dimension.LevelStem;
+import net.minecraft.world.level.storage.DimensionDataStorage;
+import net.minecraft.world.level.storage.LevelStorageSource;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+
+/**
+ * Replacement for the vanilla {@code --forceUpgrade} world upgrader which converts the region files of a dimension
+ * in parallel.
+ * <p>
+ * The vanilla upgrader converts one chunk at a time on a single thread. Region files are independent of each other,
+ * so this upgrader gives every worker thread its own region files and converts their chunk, entity and POI data
+ * through the data converter. Chunks are rewritten in place, one chunk at a time, so an interrupted upgrade never
+ * leaves a region file half written. Finished region files are recorded in a {@link WorldUpgradeProgress} file,
+ * so restarting an interrupted upgrade skips them.
+ * <p>
+ * Chunks from before 1.13 need the legacy structure data of the whole dimension to be converted, which cannot be
+ * shared between threads. They are left untouched and {@link #upgrade} reports them, so that the vanilla upgrader
+ * can convert them afterwards.
+ */
+@NullMarked
+public final class ParallelWorldUpgrader {
+
+    private static final Logger LOGGER = LogUtils.getClassLogger();
+
+    private static final Pattern REGION_FILE_PATTERN = Pattern.compile("^r\\.(-?[0-9]+)\\.(-?[0-9]+)\\.mca$");
+    private static final int THREADS = Math.max(1, Integer.getInteger("Paper.worldUpgradeThreads", Runtime.getRuntime().availableProcessors()));
+    private static final long PROGRESS_INTERVAL_MS = TimeUnit.SECONDS.toMillis(5L);
+    // versions of data without a DataVersion tag, as assumed by the vanilla storages (see SectionStorage#getVersion)
+    private static final int DEFAULT_DATA_VERSION = -1;
+    private static final int DEFAULT_POI_DATA_VERSION = 1945;
+
+    private final LevelStorageSource.LevelStorageAccess storage;
+    private final ResourceKey<LevelStem> stem;
+    private final Optional<ResourceKey<MapCodec<? extends ChunkGenerator>>> generatorKey;
+    private final Path dimensionFolder;
+    private final boolean eraseCache;
+
+    private int totalRegions;
+    private final AtomicInteger regionsDone = new AtomicInteger();
+    private final AtomicInteger regionsFailed = new AtomicInteger();
+    private final AtomicLong chunksConverted = new AtomicLong();
+    private final AtomicLong chunksSkipped = new AtomicLong();
+    private final AtomicLong legacyChunks = new AtomicLong();
+
+    private ParallelWorldUpgrader(final LevelStorageSource.LevelStorageAccess storage, final RegistryAccess registryAccess, final boolean eraseCache) {
+        this.storage = storage;
+        this.stem = storage.dimensionType;
+        this.generatorKey = registryAccess.lookupOrThrow(Registries.LEVEL_STEM).getValueOrThrow(this.stem).generator().getTypeNameForDataFixer();
+        this.dimensionFolder = storage.getDimensionPath(Registries.levelStemToLevel(this.stem));
+        this.eraseCache = eraseCache;
+    }
+
+    /**
+     * Upgrades the chunk, entity and POI data of the dimension of the specified level storage.
+     *
+     * @param storage the level storage
+     * @param registryAccess the registries, containing the level stem of the dimension
+     * @param eraseCache whether to remove cached heightmaps and light
+     * @return {@code false} if chunks from before 1.13 were found and still need to be upgraded by the vanilla upgrader
+     */
+    public static boolean upgrade(final LevelStorageSource.LevelStorageAccess storage, final RegistryAccess registryAccess, final boolean eraseCache) {
+        return new ParallelWorldUpgrader(storage, registryAccess, eraseCache).run();
+    }
+
+    private boolean run() {
+        final String header = "version=" + Version.getCurrentVersion() + " eraseCache=" + this.eraseCache;
+        final List<RegionTask> tasks = new ArrayList<>();
+        try (final ChunkStorage chunkStorage = new ChunkStorage(this.info("chunk"), this.dimensionFolder.resolve("region"), DataFixers.getDataFixer(), false)) {
+            final WorldUpgradeProgress progress = WorldUpgradeProgress.load(this.dimensionFolder, WorldUpgradeProgress.OFFLINE_FILE_NAME, header);
+            final int resumed = progress.finishedCount();
+            this.collectTasks(tasks, progress, "region", "chunk", MCTypeRegistry.CHUNK, DEFAULT_DATA_VERSION, chunkStorage);
+            this.collectTasks(tasks, progress, "entities", "entities", MCTypeRegistry.ENTITY_CHUNK, DEFAULT_DATA_VERSION, null);
+            this.collectTasks(tasks, progress, "poi", "poi", MCTypeRegistry.POI_CHUNK, DEFAULT_POI_DATA_VERSION, null);
+            this.totalRegions = tasks.size() + this.regionsDone.get();
+
+            LOGGER.info(
+                "Upgrading {} region files of world {} ({}) on {} threads{}",
+                tasks.size(), this.storage.getLevelId(), this.stem.location(), THREADS,
+                resumed == 0 ? "" : ", resuming after " + resumed + " finished region files"
+            );
+
+            final ExecutorService executor = Executors.newFixedThreadPool(THREADS, new ThreadFactoryBuilder()
+                .setNameFormat("Paper World Upgrader #%d")
+                .setDaemon(true)
+                .setUncaughtExceptionHandler((final Thread thread, final Throwable thr) -> LOGGER.error("Uncaught exception in thread {}", thread.getName(), thr))
+                .build()
+            );
+            for (final RegionTask task : tasks) {
+                executor.execute(() -> this.upgradeRegion(task, progress));
+            }
+            executor.shutdown();
+
+            final long start = System.nanoTime();
+            try {
+                while (!executor.awaitTermination(PROGRESS_INTERVAL_MS, TimeUnit.MILLISECONDS)) {
+                    this.logProgress(start);
+                }
+            } catch (final InterruptedException ex) {
+                executor.shutdownNow();
+                Thread.currentThread().interrupt();
+                progress.close();
+                LOGGER.warn("World upgrade of {} was interrupted, it will resume with the next upgrade", this.storage.getLevelId());
+                return true;
+            }
+            this.logProgress(start);
+
+            if (this.regionsFailed.get() == 0) {
+                progress.complete();
+            } else {
+                progress.close();
+                LOGGER.warn(
+                    "{} region files of world {} could not be fully upgraded, see above. Their chunks will be upgraded when they are loaded, or with the next upgrade",
+                    this.regionsFailed.get(), this.storage.getLevelId()
+                );
+            }
+        } catch (final IOException ex) {
+            LOGGER.error("Failed to upgrade world {}", this.storage.getLevelId(), ex);
+        }
+
+        if (this.legacyChunks.get() != 0L) {
+            LOGGER.info("Found {} chunks from before 1.13 in world {}, upgrading them with the vanilla upgrader", this.legacyChunks.get(), this.storage.getLevelId());
+            return false;
+        }
+        return true;
+    }
+
+    private RegionStorageInfo info(final String type) {
+        return new RegionStorageInfo(this.storage.getLevelId(), Registries.levelStemToLevel(this.stem), type);
+    }
+
+    private void collectTasks(final List<RegionTask> tasks, final WorldUpgradeProgress progress, final String folderName, final String type,
+                              final MCDataType dataType, final int defaultDataVersion, final @Nullable ChunkStorage chunkStorage) throws IOException {
+        final Path folder = this.dimensionFolder.resolve(folderName);
+        if (!Files.isDirectory(folder)) {
+            return;
+        }
+        final RegionStorageInfo info = this.info(type);
+        try (final Stream<Path> files = Files.list(folder)) {
+            for (final Path file : (Iterable<Path>) files::iterator) {
+                final Matcher matcher = REGION_FILE_PATTERN.matcher(file.getFileName().toString());
+                if (!matcher.matches()) {
+                    continue;
+                }
+                final String name = folderName + "/" + file.getFileName();
+                if (progress.isFinished(name)) {
+                    this.regionsDone.incrementAndGet();
+                    continue;
+                }
+                tasks.add(new RegionTask(
+                    name, info, file, folder, Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)), dataType, defaultDataVersion, chunkStorage
+                ));
+            }
+        }
+    }
+
+    private void upgradeRegion(final RegionTask task, final WorldUpgradeProgress progress) {
+        boolean failed = false;
+        try (final RegionFile regionFile = new RegionFile(task.info(), task.file(), task.folder(), false)) {
+            for (int i = 0; i < 32 * 32; ++i) {
+                final ChunkPos pos = new ChunkPos((task.regionX() << 5) | (i & 31), (task.regionZ() << 5) | (i >>> 5));
+                if (!regionFile.hasChunk(pos)) {
+                    continue;
+                }
+                try {
+                    this.upgradeChunk(task, regionFile, pos);
+                } catch (final Exception ex) {
+                    // leave the chunk as it is, it is converted when it is loaded
+                    LOGGER.error("Failed to upgrade chunk {} in {}", pos, task.file(), ex);
+                    failed = true;
+                }
+            }
+        } catch (final IOException ex) {
+            LOGGER.error("Failed to upgrade region file {}", task.file(), ex);
+            failed = true;
+        }
+
+        if (failed) {
+            this.regionsFailed.incrementAndGet();
+            return;
+        }
+        try {
+            progress.markFinished(task.name());
+        } catch (final IOException ex) {
+            LOGGER.warn("Failed to record progress of the world upgrade for {}", task.file(), ex);
+        }
+        this.regionsDone.incrementAndGet();
+    }
+
+    private void upgradeChunk(final RegionTask task, final RegionFile regionFile, final ChunkPos pos) throws IOException {
+        final CompoundTag tag;
+        try (final DataInputStream input = regionFile.getChunkDataInputStream(pos)) {
+            if (input == null) {
+                throw new IOException("Chunk data exists but could not be read");
+            }
+            tag = NbtIo.read(input);
+        }
+
+        final int version = NbtUtils.getDataVersion(tag, task.defaultDataVersion());
+        if (task.chunkStorage() != null && version < ChunkStorage.LAST_MONOLYTH_STRUCTURE_DATA_VERSION) {
+            this.legacyChunks.incrementAndGet();
+            return;
+        }
+
+        boolean changed = version < Version.getCurrentVersion();
+        CompoundTag upgraded = tag;
+        if (changed) {
+            if (task.chunkStorage() != null) {
+                upgraded = task.chunkStorage().upgradeChunkTag(
+                    this.stem, ParallelWorldUpgrader::noLegacyStructures, tag, this.generatorKey, pos, null
+                );
+                final ChunkPos storedPos = new ChunkPos(upgraded.getIntOr("xPos", 0), upgraded.getIntOr("zPos", 0));
+                if (!storedPos.equals(pos)) {
+                    LOGGER.warn("Chunk {} has invalid position {}", pos, storedPos);
+                }
+            } else {
+                upgraded = NbtUtils.addCurrentDataVersion(MCDataConverter.convertTag(task.dataType(), tag, version, Version.getCurrentVersion()));
+            }
+        }
+        if (this.eraseCache && task.chunkStorage() != null) {
+            changed |= eraseCache(upgraded);
+        }
+
+        if (!changed) {
+            this.chunksSkipped.incrementAndGet();
+            return;
+        }
+        try (final DataOutputStream output = regionFile.getChunkDataOutputStream(pos)) {
+            NbtIo.write(upgraded, output);
+        }
+        this.chunksConverted.incrementAndGet();
+    }
+
+    private static DimensionDataStorage noLegacyStructures() {
+        throw new IllegalStateException("Chunks from before 1.13 are left to the vanilla upgrader");
+    }
+
+    // same data as the vanilla upgrader removes
+    private static boolean eraseCache(final CompoundTag chunk) {
+        boolean changed = chunk.contains("Heightmaps") || chunk.contains("isLightOn");
+        chunk.remove("Heightmaps");
+        chunk.remove("isLightOn");
+        final ListTag sections = chunk.getListOrEmpty("sections");
+        for (int i = 0; i < sections.size(); ++i) {
+            final Optional<CompoundTag> section = sections.getCompound(i);
+            if (section.isPresent()) {
+                changed |= section.get().contains("BlockLight") || section.get().contains("SkyLight");
+                section.get().remove("BlockLight");
+                section.get().remove("SkyLight");
+            }
+        }
+        return changed;
+    }
+
+    private void logProgress(final long start) {
+        final int done = this.regionsDone.get() + this.regionsFailed.get();
+        final int all = this.totalRegions;
+        final double seconds = Math.max(1.0E-3, (System.nanoTime() - start) / 1.0E9);
+        LOGGER.info(String.format(
+            Locale.ROOT, "Upgrading %s: %d/%d region files (%.1f%%), %d chunks converted (%.0f/s), %d already up to date",
+            this.storage.getLevelId(), done, all, all == 0 ? 100.0 : 100.0 * done / all,
+            this.chunksConverted.get(), this.chunksConverted.get() / seconds, this.chunksSkipped.get()
+        ));
+    }
+
+    private record RegionTask(String name, RegionStorageInfo info, Path file, Path folder, int regionX, int regionZ,
+                              MCDataType dataType, int defaultDataVersion, @Nullable ChunkStorage chunkStorage) {
+    }
+}
@@ -0,0 +1,115 @@
+package io.papermc.paper.world.upgrade;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Remembers which region files of a dimension a world upgrade already finished, so that an interrupted upgrade
+ * continues where it stopped instead of reading every chunk again.
+ * <p>
+ * The first line of the file describes the upgrade (target data version and options). A file written by a
+ * different upgrade is ignored and replaced. Every following line is the path of a finished region file,
+ * relative to the dimension folder, appended and flushed as soon as the region file is done. The offline and the
+ * online upgrade use separate files, so that starting one does not discard the progress of the other.
+ */
+@NullMarked
+public final class WorldUpgradeProgress implements AutoCloseable {
+
+    public static final String OFFLINE_FILE_NAME = "paper-world-upgrade.progress";
+    public static final String ONLINE_FILE_NAME = "paper-online-world-upgrade.progress";
+
+    private final Path file;
+    private final String header;
+    private final Set<String> finished = new HashSet<>();
+    private @Nullable BufferedWriter writer;
+
+    private WorldUpgradeProgress(final Path file, final String header) {
+        this.file = file;
+        this.header = header;
+    }
+
+    /**
+     * Loads the progress of the upgrade described by the header in the specified dimension folder.
+     *
+     * @param dimensionFolder the dimension folder
+     * @param fileName the name of the progress file, {@link #OFFLINE_FILE_NAME} or {@link #ONLINE_FILE_NAME}
+     * @param header the description of the upgrade, must be a single line
+     * @return the progress, empty if no upgrade or a different upgrade was in progress
+     * @throws IOException if the progress file exists but cannot be read
+     */
+    public static WorldUpgradeProgress load(final Path dimensionFolder, final String fileName, final String header) throws IOException {
+        final WorldUpgradeProgress ret = new WorldUpgradeProgress(dimensionFolder.resolve(fileName), header);
+        if (Files.isRegularFile(ret.file)) {
+            final List<String> lines = Files.readAllLines(ret.file, StandardCharsets.UTF_8);
+            if (!lines.isEmpty() && lines.getFirst().equals(header)) {
+                for (int i = 1; i < lines.size(); ++i) {
+                    final String line = lines.get(i).trim();
+                    if (!line.isEmpty()) {
+                        ret.finished.add(line);
+                    }
+                }
+            }
+        }
+        return ret;
+    }
+
+    public synchronized boolean isFinished(final String regionFile) {
+        return this.finished.contains(regionFile);
+    }
+
+    public synchronized int finishedCount() {
+        return this.finished.size();
+    }
+
+    /**
+     * Records the specified region file as finished. The record is on disk once this method returns.
+     *
+     * @param regionFile the path of the region file, relative to the dimension folder
+     * @throws IOException if the progress file cannot be written
+     */
+    public synchronized void markFinished(final String regionFile) throws IOException {
+        if (!this.finished.add(regionFile)) {
+            return;
+        }
+        if (this.writer == null) {
+            if (this.finished.size() == 1) {
+                // first region of this upgrade, drop whatever a different upgrade left behind
+                this.writer = Files.newBufferedWriter(this.file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+                this.writer.write(this.header);
+                this.writer.newLine();
+            } else {
+                this.writer = Files.newBufferedWriter(this.file, StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+            }
+        }
+        this.writer.write(regionFile);
+        this.writer.newLine();
+        this.writer.flush();
+    }
+
+    /**
+     * Removes the progress file once the whole upgrade finished.
+     *
+     * @throws IOException if the progress file cannot be deleted
+     */
+    public synchronized void complete() throws IOException {
+        this.close();
+        Files.deleteIfExists(this.file);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (this.writer != null) {
+            this.writer.close();
+            this.writer = null;
+        }
+    }
+}
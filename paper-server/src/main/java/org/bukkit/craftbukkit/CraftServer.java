@@ -332,6 +332,11 @@ public final class CraftServer implements Server {
         return this.asyncScheduler;
     }
 
+    @Override
+    public io.papermc.paper.threadedregions.scheduler.AsyncTaskMetrics getAsyncTaskMetrics() {
+        return io.papermc.paper.threadedregions.scheduler.PluginTaskExecutor.metrics();
+    }
+
     @Override
     public final io.papermc.paper.threadedregions.scheduler.FoliaGlobalRegionScheduler getGlobalRegionScheduler() {
         return this.globalRegionScheduler;
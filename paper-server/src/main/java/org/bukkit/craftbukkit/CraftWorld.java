@@ -294,6 +294,35 @@ public class CraftWorld extends CraftRegionAccessor implements World {
         ).isValid();
     }
     // Paper end
+    // Paper start - bulk relight API
+    @Override
+    public java.util.concurrent.CompletableFuture<Integer> relightSections(final Collection<? extends io.papermc.paper.math.Position> positions) {
+        Preconditions.checkArgument(positions != null, "positions cannot be null");
+        final it.unimi.dsi.fastutil.longs.LongOpenHashSet sections = new it.unimi.dsi.fastutil.longs.LongOpenHashSet(positions.size());
+        for (final io.papermc.paper.math.Position position : positions) {
+            sections.add(net.minecraft.core.SectionPos.asLong(position.blockX() >> 4, position.blockY() >> 4, position.blockZ() >> 4));
+        }
+        return io.papermc.paper.world.SectionRelighter.relight(this.world, sections);
+    }
+    // Paper end - bulk relight API
+    // Paper start - adaptive activation range
+    @Override
+    public int getEntityActivationRange(final io.papermc.paper.entity.activation.ActivationCategory category) {
+        Preconditions.checkArgument(category != null, "category cannot be null");
+        return this.world.adaptiveActivationRange.getActivationRange(io.papermc.paper.entity.activation.ActivationType.fromCategory(category));
+    }
+
+    @Override
+    public int getInactiveEntityWakeUpInterval(final io.papermc.paper.entity.activation.ActivationCategory category) {
+        Preconditions.checkArgument(category != null, "category cannot be null");
+        return this.world.adaptiveActivationRange.getWakeUpInactiveEvery(io.papermc.paper.entity.activation.ActivationType.fromCategory(category));
+    }
+
+    @Override
+    public double getEntityActivationScale() {
+        return this.world.adaptiveActivationRange.getScale();
+    }
+    // Paper end - adaptive activation range
 
     private static final Random rand = new Random();
 
@@ -1402,6 +1402,15 @@ public class CraftEventFactory {
         return event;
     }
 
+    // Paper start - skip unused events
+    public static int callRedstoneChangeIfListened(Level world, BlockPos pos, int oldCurrent, int newCurrent) {
+        if (!io.papermc.paper.event.EventFastPath.BLOCK_REDSTONE.shouldCall()) {
+            return newCurrent;
+        }
+        return callRedstoneChange(world, pos, oldCurrent, newCurrent).getNewCurrent();
+    }
+    // Paper end - skip unused events
+
     public static NotePlayEvent callNotePlayEvent(Level world, BlockPos pos, NoteBlockInstrument instrument, int note) {
         NotePlayEvent event = new NotePlayEvent(CraftBlock.at(world, pos), org.bukkit.Instrument.getByType((byte) instrument.ordinal()), new org.bukkit.Note(note));
         world.getCraftServer().getPluginManager().callEvent(event);
@@ -25,11 +25,9 @@ package org.bukkit.craftbukkit.scheduler;
 
 import com.destroystokyo.paper.ServerSchedulerReportingWrapper;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.papermc.paper.threadedregions.scheduler.PluginTaskExecutor;
 import org.bukkit.plugin.Plugin;
 
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.List;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
 import java.util.concurrent.SynchronousQueue;
@@ -43,7 +41,7 @@ public class CraftAsyncScheduler extends CraftScheduler {
             new ThreadFactoryBuilder().setNameFormat("Craft Scheduler Thread - %1$d").build());
     private final Executor management = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
             .setNameFormat("Craft Async Scheduler Management Thread").build());
-    private final List<CraftTask> temp = new ArrayList<>();
+    private final PluginTaskExecutor taskExecutor = new PluginTaskExecutor(this.executor, "Craft Scheduler Thread - ");
 
     CraftAsyncScheduler() {
         super(true);
@@ -58,13 +56,11 @@ public class CraftAsyncScheduler extends CraftScheduler {
 
     private synchronized void removeTask(int taskId) {
         parsePending();
-        this.pending.removeIf((task) -> {
-            if (task.getTaskId() == taskId) {
-                task.cancel0();
-                return true;
-            }
-            return false;
-        });
+        final CraftTask task = this.pending.get(taskId);
+        if (task != null) {
+            task.cancel0();
+            this.pending.remove(task);
+        }
     }
 
     @Override
@@ -75,25 +71,24 @@ public class CraftAsyncScheduler extends CraftScheduler {
 
     private synchronized void runTasks(int currentTick) {
         parsePending();
-        while (!this.pending.isEmpty() && this.pending.peek().getNextRun() <= currentTick) {
-            CraftTask task = this.pending.remove();
-            if (executeTask(task)) {
-                final long period = task.getPeriod();
-                if (period > 0) {
-                    task.setNextRun(currentTick + period);
-                    temp.add(task);
-                }
+        this.pending.advanceTo(currentTick);
+        CraftTask task;
+        while ((task = this.pending.poll()) != null) {
+            final long period;
+            if (executeTask(task) && (period = task.getPeriod()) > 0) {
+                task.setNextRun(currentTick + period);
+                this.pending.add(task); // not due before the next tick
+            } else {
+                this.pending.release(task);
             }
             parsePending();
         }
-        this.pending.addAll(temp);
-        temp.clear();
     }
 
     private boolean executeTask(CraftTask task) {
         if (isValid(task)) {
             this.runners.put(task.getTaskId(), task);
-            this.executor.execute(new ServerSchedulerReportingWrapper(task));
+            this.taskExecutor.execute(task.getOwner(), new ServerSchedulerReportingWrapper(task));
             return true;
         }
         return false;
@@ -102,12 +97,9 @@ public class CraftAsyncScheduler extends CraftScheduler {
     @Override
     public synchronized void cancelTasks(Plugin plugin) {
         parsePending();
-        for (Iterator<CraftTask> iterator = this.pending.iterator(); iterator.hasNext(); ) {
-            CraftTask task = iterator.next();
-            if (task.getTaskId() != -1 && (plugin == null || task.getOwner().equals(plugin))) {
-                task.cancel0();
-                iterator.remove();
-            }
+        for (final CraftTask task : this.pending.getTasks(plugin)) {
+            task.cancel0();
+            this.pending.remove(task);
         }
     }
 
@@ -3,10 +3,7 @@ package org.bukkit.craftbukkit.scheduler;
 import com.google.common.base.Preconditions;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.Iterator;
 import java.util.List;
-import java.util.PriorityQueue;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
@@ -28,7 +25,7 @@ import org.bukkit.scheduler.BukkitWorker;
  * The fundamental concepts for this implementation:
  * <ul>
  * <li>Main thread owns {@link #head} and {@link #currentTick}, but it may be read from any thread</li>
- * <li>Main thread exclusively controls {@link #temp} and {@link #pending}.
+ * <li>Main thread exclusively controls {@link #pending}.
  *     They are never to be accessed outside of the main thread; alternatives exist to prevent locking.</li>
  * <li>{@link #head} to {@link #tail} act as a linked list/queue, with 1 consumer and infinite producers.
  *     Adding to the tail is atomic and very efficient; utility method is {@link #handle(CraftTask, long)} or {@link #addTask(CraftTask)}. </li>
@@ -39,7 +36,7 @@ import org.bukkit.scheduler.BukkitWorker;
  * <li>{@link #runners} provides a moderately up-to-date view of active tasks.
  *     If the linked head to tail set is read, all remaining tasks that were active at the time execution started will be located in runners.</li>
  * <li>Async tasks are responsible for removing themselves from runners</li>
- * <li>Sync tasks are only to be removed from runners on the main thread when coupled with a removal from pending and temp.</li>
+ * <li>Sync tasks are only to be removed from runners on the main thread when coupled with a removal from pending.</li>
  * <li>Most of the design in this scheduler relies on queuing special tasks to perform any data changes on the main thread.
  *     When executed from inside a synchronous method, the scheduler will be updated before next execution by virtue of the frequent {@link #parsePending()} calls.</li>
  * </ul>
@@ -75,20 +72,7 @@ public class CraftScheduler implements BukkitScheduler {
     /**
      * Main thread logic only
      */
-    final PriorityQueue<CraftTask> pending = new PriorityQueue<CraftTask>(10, // Paper
-            new Comparator<CraftTask>() {
-                @Override
-                public int compare(final CraftTask o1, final CraftTask o2) {
-                    int value = Long.compare(o1.getNextRun(), o2.getNextRun());
-
-                    // If the tasks should run on the same tick they should be run FIFO
-                    return value != 0 ? value : Long.compare(o1.getCreatedAt(), o2.getCreatedAt());
-                }
-            });
-    /**
-     * Main thread logic only
-     */
-    private final List<CraftTask> temp = new ArrayList<CraftTask>();
+    final CraftTaskWheel pending = new CraftTaskWheel(-1); // Paper - timing wheel scheduler
     /**
      * These are tasks that are currently active. It's provided for 'viewing' the current state.
      */
@@ -277,24 +261,16 @@ public class CraftScheduler implements BukkitScheduler {
                 new Runnable() {
                     @Override
                     public void run() {
-                        if (!this.check(CraftScheduler.this.temp)) {
-                            this.check(CraftScheduler.this.pending);
-                        }
-                    }
-                    private boolean check(final Iterable<CraftTask> collection) {
-                        final Iterator<CraftTask> tasks = collection.iterator();
-                        while (tasks.hasNext()) {
-                            final CraftTask task = tasks.next();
-                            if (task.getTaskId() == taskId) {
-                                task.cancel0();
-                                tasks.remove();
-                                if (task.isSync()) {
-                                    CraftScheduler.this.runners.remove(taskId);
-                                }
-                                return true;
+                        // Paper start - timing wheel scheduler
+                        final CraftTask task = CraftScheduler.this.pending.get(taskId);
+                        if (task != null) {
+                            task.cancel0();
+                            CraftScheduler.this.pending.remove(task);
+                            if (task.isSync()) {
+                                CraftScheduler.this.runners.remove(taskId);
                             }
                         }
-                        return false;
+                        // Paper end - timing wheel scheduler
                     }
                 });
         this.handle(task, 0L);
@@ -320,21 +296,15 @@ public class CraftScheduler implements BukkitScheduler {
                 new Runnable() {
                     @Override
                     public void run() {
-                        this.check(CraftScheduler.this.pending);
-                        this.check(CraftScheduler.this.temp);
-                    }
-                    void check(final Iterable<CraftTask> collection) {
-                        final Iterator<CraftTask> tasks = collection.iterator();
-                        while (tasks.hasNext()) {
-                            final CraftTask task = tasks.next();
-                            if (task.getOwner().equals(plugin)) {
-                                task.cancel0();
-                                tasks.remove();
-                                if (task.isSync()) {
-                                    CraftScheduler.this.runners.remove(task.getTaskId());
-                                }
+                        // Paper start - timing wheel scheduler
+                        for (final CraftTask task : CraftScheduler.this.pending.getTasks(plugin)) {
+                            task.cancel0();
+                            CraftScheduler.this.pending.remove(task);
+                            if (task.isSync()) {
+                                CraftScheduler.this.runners.remove(task.getTaskId());
                             }
                         }
+                        // Paper end - timing wheel scheduler
                     }
                 });
         this.handle(task, 0L);
@@ -457,14 +427,17 @@ public class CraftScheduler implements BukkitScheduler {
             this.asyncScheduler.mainThreadHeartbeat();
         }
         // Paper end
-        final List<CraftTask> temp = this.temp;
         this.parsePending();
-        while (this.isReady(this.currentTick)) {
-            final CraftTask task = this.pending.remove();
+        // Paper start - timing wheel scheduler
+        this.pending.advanceTo(this.currentTick);
+        CraftTask task;
+        while ((task = this.pending.poll()) != null) {
             if (task.getPeriod() < CraftTask.NO_REPEATING) {
                 if (task.isSync()) {
                     this.runners.remove(task.getTaskId(), task);
                 }
+                this.pending.release(task);
+                // Paper end - timing wheel scheduler
                 this.parsePending();
                 continue;
             }
@@ -498,13 +471,16 @@ public class CraftScheduler implements BukkitScheduler {
             final long period = task.getPeriod(); // State consistency
             if (period > 0) {
                 task.setNextRun(this.currentTick + period);
-                temp.add(task);
-            } else if (task.isSync()) {
-                this.runners.remove(task.getTaskId());
+                this.pending.add(task); // Paper - timing wheel scheduler; not due before the next tick
+            } else {
+                // Paper start - timing wheel scheduler
+                if (task.isSync()) {
+                    this.runners.remove(task.getTaskId());
+                }
+                this.pending.release(task);
+                // Paper end - timing wheel scheduler
             }
         }
-        this.pending.addAll(temp);
-        temp.clear();
         //this.debugHead = this.debugHead.getNextHead(this.currentTick); // Paper
     }
 
@@ -563,10 +539,6 @@ public class CraftScheduler implements BukkitScheduler {
         this.head = lastTask;
     }
 
-    private boolean isReady(final int currentTick) {
-        return !this.pending.isEmpty() && this.pending.peek().getNextRun() <= currentTick;
-    }
-
     @Override
     public String toString() {
         // Paper start
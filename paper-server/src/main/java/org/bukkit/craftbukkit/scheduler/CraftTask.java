@@ -29,6 +29,11 @@ public class CraftTask implements BukkitTask, Runnable { // Spigot
     private final Plugin plugin;
     private final int id;
     private final long createdAt = System.nanoTime();
+    // Paper start - timing wheel scheduler; owned by the thread running the scheduler
+    CraftTaskWheel.Bucket wheelBucket;
+    int wheelBucketIndex;
+    boolean wheelIndexed;
+    // Paper end - timing wheel scheduler
 
     CraftTask() {
         this(null, null, CraftTask.NO_REPEATING, CraftTask.NO_REPEATING);
@@ -0,0 +1,275 @@
+package org.bukkit.craftbukkit.scheduler;
+
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ReferenceOpenHashSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import org.bukkit.plugin.Plugin;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Hierarchical timing wheel holding the scheduled tasks of a {@link CraftScheduler}, replacing a priority queue
+ * ordered by next run and creation time.
+ * <p>
+ * Tasks are placed into a bucket of the lowest level which covers their delay. Whenever the wheel advances past the
+ * start of a bucket of a higher level, that bucket is cascaded into the lower levels, and the level 0 bucket of the
+ * current tick becomes ready. Adding, removing and advancing are therefore constant time, only the tasks due in the
+ * current tick are sorted, which is linear for the common case of repeating tasks being re-added in order.
+ * </p>
+ * <p>
+ * Tasks are polled in exactly the order of the previous queue: by next run, then FIFO by creation time. This includes
+ * tasks added while the current tick is being polled, for example tasks scheduled without delay by a running task.
+ * </p>
+ * The wheel also indexes its tasks by id and by owner, so single tasks and all tasks of a plugin can be cancelled
+ * without scanning every scheduled task. Internal tasks of the scheduler, which all use the id -1, are not indexed. A
+ * polled task stays indexed until it is either added again or released.
+ * <p>
+ * Not thread-safe, the wheel is owned by the thread running the scheduler.
+ * </p>
+ */
+@NullMarked
+final class CraftTaskWheel {
+
+    static final Comparator<CraftTask> ORDER = (final CraftTask task1, final CraftTask task2) -> {
+        final int value = Long.compare(task1.getNextRun(), task2.getNextRun());
+        // If the tasks should run on the same tick they should be run FIFO
+        return value != 0 ? value : Long.compare(task1.getCreatedAt(), task2.getCreatedAt());
+    };
+
+    // level n holds delays below 1 << LEVEL_SHIFTS[n + 1], with a bucket spanning 1 << LEVEL_SHIFTS[n] ticks
+    private static final int[] LEVEL_SHIFTS = {0, 8, 14, 20, 26};
+    private static final int LEVELS = LEVEL_SHIFTS.length - 1;
+
+    // markers for tasks which are due, but not placed in a bucket
+    private static final Bucket READY = new Bucket();
+    private static final Bucket LATE = new Bucket();
+
+    private final Bucket[][] levels = new Bucket[LEVELS][];
+    // tasks beyond the highest level, re-placed whenever a bucket of the highest level starts
+    private final Bucket overflow = new Bucket();
+    private int placed;
+
+    // tasks of the current tick, sorted lazily and polled from readyIndex
+    private final ArrayList<CraftTask> ready = new ArrayList<>();
+    private int readyIndex;
+    private boolean readySorted = true;
+    // tasks added with a next run which has already passed
+    private final PriorityQueue<CraftTask> late = new PriorityQueue<>(ORDER);
+
+    private final Int2ObjectMap<CraftTask> tasksById = new Int2ObjectOpenHashMap<>();
+    private final Map<Plugin, ReferenceOpenHashSet<CraftTask>> tasksByPlugin = new HashMap<>();
+
+    private long tick;
+
+    CraftTaskWheel(final long tick) {
+        this.tick = tick;
+        for (int level = 0; level < LEVELS; ++level) {
+            final Bucket[] buckets = new Bucket[1 << (LEVEL_SHIFTS[level + 1] - LEVEL_SHIFTS[level])];
+            for (int i = 0; i < buckets.length; ++i) {
+                buckets[i] = new Bucket();
+            }
+            this.levels[level] = buckets;
+        }
+    }
+
+    long getTick() {
+        return this.tick;
+    }
+
+    void add(final CraftTask task) {
+        // -1 is special code, internal tasks share it and are never looked up
+        if (!task.wheelIndexed && task.getTaskId() != -1) {
+            task.wheelIndexed = true;
+            this.tasksById.put(task.getTaskId(), task);
+            this.tasksByPlugin.computeIfAbsent(task.getOwner(), plugin -> new ReferenceOpenHashSet<>()).add(task);
+        }
+        this.place(task);
+    }
+
+    /**
+     * Removes a task from the wheel and its indexes, no matter whether it was polled already.
+     *
+     * @return whether the task was still indexed
+     */
+    boolean remove(final CraftTask task) {
+        final Bucket bucket = task.wheelBucket;
+        if (bucket == READY) {
+            this.ready.remove(task); // never before readyIndex, polled tasks are cleared
+        } else if (bucket == LATE) {
+            this.late.remove(task);
+        } else if (bucket != null) {
+            bucket.remove(task);
+            --this.placed;
+        }
+        task.wheelBucket = null;
+        return this.release(task);
+    }
+
+    /**
+     * Drops a polled task from the indexes, once it is not going to be added again.
+     *
+     * @return whether the task was still indexed
+     */
+    boolean release(final CraftTask task) {
+        if (!task.wheelIndexed) {
+            return false;
+        }
+        task.wheelIndexed = false;
+        this.tasksById.remove(task.getTaskId(), task);
+        final ReferenceOpenHashSet<CraftTask> tasks = this.tasksByPlugin.get(task.getOwner());
+        if (tasks != null && tasks.remove(task) && tasks.isEmpty()) {
+            this.tasksByPlugin.remove(task.getOwner());
+        }
+        return true;
+    }
+
+    @Nullable CraftTask get(final int taskId) {
+        return this.tasksById.get(taskId);
+    }
+
+    /**
+     * {@return a copy of the indexed tasks owned by the plugin, or of all indexed tasks if it is null, internal tasks
+     * are never included}
+     */
+    List<CraftTask> getTasks(final @Nullable Plugin plugin) {
+        if (plugin == null) {
+            return new ArrayList<>(this.tasksById.values());
+        }
+        final ReferenceOpenHashSet<CraftTask> tasks = this.tasksByPlugin.get(plugin);
+        return tasks == null ? List.of() : new ArrayList<>(tasks);
+    }
+
+    /**
+     * Advances the wheel up to the given tick, making the tasks of every passed tick ready to be polled.
+     */
+    void advanceTo(final long tick) {
+        while (this.tick < tick) {
+            final long next = ++this.tick;
+            if (this.placed == 0) {
+                continue;
+            }
+            if ((next & ((1L << LEVEL_SHIFTS[LEVELS - 1]) - 1L)) == 0L) {
+                this.cascade(this.overflow);
+            }
+            // higher levels first, their tasks may fall through to the level 0 bucket of this tick
+            for (int level = LEVELS - 1; level > 0; --level) {
+                if ((next & ((1L << LEVEL_SHIFTS[level]) - 1L)) == 0L) {
+                    this.cascade(this.bucket(level, next));
+                }
+            }
+
+            final Bucket bucket = this.bucket(0, next);
+            if (bucket.size != 0) {
+                for (int i = 0; i < bucket.size; ++i) {
+                    final CraftTask task = bucket.tasks[i];
+                    bucket.tasks[i] = null;
+                    task.wheelBucket = READY;
+                    this.ready.add(task);
+                }
+                this.placed -= bucket.size;
+                bucket.size = 0;
+                this.readySorted = false;
+            }
+        }
+    }
+
+    /**
+     * {@return the next task whose next run is not after the current tick of the wheel, or null}
+     */
+    @Nullable CraftTask poll() {
+        if (!this.readySorted) {
+            this.ready.subList(this.readyIndex, this.ready.size()).sort(ORDER);
+            this.readySorted = true;
+        }
+
+        final CraftTask ready = this.readyIndex < this.ready.size() ? this.ready.get(this.readyIndex) : null;
+        final CraftTask late = this.late.peek();
+        final CraftTask ret;
+        if (late != null && (ready == null || ORDER.compare(late, ready) < 0)) {
+            ret = this.late.poll();
+        } else if (ready != null) {
+            this.ready.set(this.readyIndex++, null);
+            if (this.readyIndex == this.ready.size()) {
+                this.ready.clear();
+                this.readyIndex = 0;
+            }
+            ret = ready;
+        } else {
+            return null;
+        }
+        ret.wheelBucket = null;
+        return ret;
+    }
+
+    private Bucket bucket(final int level, final long tick) {
+        final Bucket[] buckets = this.levels[level];
+        return buckets[(int) (tick >>> LEVEL_SHIFTS[level]) & (buckets.length - 1)];
+    }
+
+    private void place(final CraftTask task) {
+        final long nextRun = task.getNextRun();
+        final long delay = nextRun - this.tick;
+        if (delay <= 0L) {
+            task.wheelBucket = LATE;
+            this.late.add(task);
+            return;
+        }
+        ++this.placed;
+        for (int level = 0; level < LEVELS; ++level) {
+            if (delay < 1L << LEVEL_SHIFTS[level + 1]) {
+                this.bucket(level, nextRun).add(task);
+                return;
+            }
+        }
+        this.overflow.add(task);
+    }
+
+    private void cascade(final Bucket bucket) {
+        final int size = bucket.size;
+        if (size == 0) {
+            return;
+        }
+        final CraftTask[] tasks = Arrays.copyOf(bucket.tasks, size);
+        Arrays.fill(bucket.tasks, 0, size, null);
+        bucket.size = 0;
+        this.placed -= size;
+        for (final CraftTask task : tasks) {
+            this.place(task);
+        }
+    }
+
+    /**
+     * Unordered bag of tasks, removing by swapping with the last task.
+     */
+    static final class Bucket {
+
+        private static final CraftTask[] EMPTY = new CraftTask[0];
+
+        private CraftTask[] tasks = EMPTY;
+        private int size;
+
+        void add(final CraftTask task) {
+            if (this.size == this.tasks.length) {
+                this.tasks = Arrays.copyOf(this.tasks, Math.max(4, this.size * 2));
+            }
+            task.wheelBucket = this;
+            task.wheelBucketIndex = this.size;
+            this.tasks[this.size++] = task;
+        }
+
+        void remove(final CraftTask task) {
+            final int index = task.wheelBucketIndex;
+            final CraftTask last = this.tasks[--this.size];
+            this.tasks[index] = last;
+            last.wheelBucketIndex = index;
+            this.tasks[this.size] = null;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package io.papermc.paper.antixray;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.bukkit.support.environment.Normal;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@Normal
+public class LayerMasksTest {
+
+    @Test
+    public void testComputeHidden() {
+        final Random random = new Random(1L);
+        final long[] masks = new long[5 * LayerMasks.LONGS];
+        final int transparent = 0;
+        final int notObfuscated = LayerMasks.LONGS;
+        final int below = 2 * LayerMasks.LONGS;
+        final int above = 3 * LayerMasks.LONGS;
+        final int hidden = 4 * LayerMasks.LONGS;
+
+        for (int run = 0; run < 1000; ++run) {
+            for (int i = 0; i < hidden; ++i) {
+                // sparse masks, so that hidden blocks are common
+                masks[i] = random.nextLong() & random.nextLong() & random.nextLong();
+            }
+            LayerMasks.computeHidden(masks, transparent, notObfuscated, below, above, hidden);
+
+            for (int z = 0; z < 16; ++z) {
+                for (int x = 0; x < 16; ++x) {
+                    final boolean expected = !get(masks, transparent, x - 1, z) && !get(masks, transparent, x + 1, z)
+                        && !get(masks, transparent, x, z - 1) && !get(masks, transparent, x, z + 1)
+                        && !get(masks, notObfuscated, x, z) && !get(masks, below, x, z) && !get(masks, above, x, z);
+                    assertEquals(expected, get(masks, hidden, x, z), "x " + x + " z " + z);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testBorder() {
+        for (int z = 0; z < 16; ++z) {
+            for (int x = 0; x < 16; ++x) {
+                final int index = z << 4 | x;
+                final boolean border = (LayerMasks.border(index >> 6) >>> (index & 63) & 1L) != 0L;
+                assertEquals(x == 0 || x == 15 || z == 0 || z == 15, border, "x " + x + " z " + z);
+            }
+        }
+    }
+
+    @Test
+    public void testSkip() {
+        final Random random = new Random(2L);
+
+        for (int bits = 1; bits <= 15; ++bits) {
+            final byte[] expected = new byte[1024];
+            final byte[] actual = new byte[1024];
+            final BitStorageWriter expectedWriter = writer(expected, bits);
+            final BitStorageWriter actualWriter = writer(actual, bits);
+            final int values = 64 / bits * expected.length / 8 - 256;
+
+            for (int written = 0; written < values; ) {
+                final int skip = Math.min(random.nextInt(200), values - written);
+                for (int i = 0; i < skip; ++i) {
+                    expectedWriter.skip();
+                }
+                actualWriter.skip(skip);
+                final int value = random.nextInt();
+                expectedWriter.write(value);
+                actualWriter.write(value);
+                written += skip + 1;
+            }
+            expectedWriter.flush();
+            actualWriter.flush();
+            assertArrayEquals(expected, actual, "bits " + bits);
+        }
+    }
+
+    private static BitStorageWriter writer(final byte[] buffer, final int bits) {
+        Arrays.fill(buffer, (byte) 0x5A);
+        final BitStorageWriter writer = new BitStorageWriter();
+        writer.setBuffer(buffer);
+        writer.setBits(bits);
+        writer.setIndex(0);
+        return writer;
+    }
+
+    private static boolean get(final long[] masks, final int offset, final int x, final int z) {
+        if (x < 0 || x > 15 || z < 0 || z > 15) {
+            return false;
+        }
+        final int index = z << 4 | x;
+        return (masks[offset + (index >> 6)] >>> (index & 63) & 1L) != 0L;
+    }
+}
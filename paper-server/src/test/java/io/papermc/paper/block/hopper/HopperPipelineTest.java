@@ -0,0 +1,89 @@
+package io.papermc.paper.block.hopper;
+
+import io.papermc.paper.plugin.PaperTestPlugin;
+import java.util.List;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.Direction;
+import net.minecraft.world.level.block.Blocks;
+import net.minecraft.world.level.block.HopperBlock;
+import net.minecraft.world.level.block.entity.HopperBlockEntity;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.bukkit.event.inventory.InventoryMoveItemEvent;
+import org.bukkit.plugin.RegisteredListener;
+import org.bukkit.support.environment.AllFeatures;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@AllFeatures
+public class HopperPipelineTest {
+
+    private static HopperBlockEntity hopper(final int x, final Direction facing) {
+        return new HopperBlockEntity(new BlockPos(x, 64, 0), Blocks.HOPPER.defaultBlockState().setValue(HopperBlock.FACING, facing));
+    }
+
+    @Test
+    public void testChainDetection() {
+        final HopperBlockEntity first = hopper(0, Direction.EAST);
+        final HopperBlockEntity second = hopper(1, Direction.EAST);
+        final HopperBlockEntity third = hopper(2, Direction.DOWN);
+        first.pipelineTarget = second;
+        second.pipelineTarget = third;
+
+        final HopperPipeline pipeline = new HopperPipeline();
+        assertTrue(pipeline.begin(first, 1L, hopper -> true));
+        assertTrue(pipeline.isTicking());
+        assertEquals(List.of(first, second, third), pipeline.members());
+        assertSame(second, pipeline.getCachedTarget(first));
+        assertNull(pipeline.getCachedTarget(third));
+        pipeline.end();
+        assertFalse(pipeline.isTicking());
+
+        // every hopper ticks only once per tick, even if its ticker runs after it ticked as part of a chain
+        assertFalse(pipeline.begin(second, 1L, hopper -> true));
+
+        // chains end at hoppers which cannot tick
+        assertTrue(pipeline.begin(first, 2L, hopper -> hopper != third));
+        assertEquals(List.of(first, second), pipeline.members());
+        pipeline.end();
+
+        // links to hoppers which are no longer in front are dropped
+        second.pipelineTarget = hopper(1, Direction.EAST);
+        assertTrue(pipeline.begin(first, 3L, hopper -> true));
+        assertEquals(List.of(first, second), pipeline.members());
+        assertNull(second.pipelineTarget);
+        pipeline.end();
+    }
+
+    @Test
+    public void testMoveEventFallback() {
+        final HopperBlockEntity first = hopper(0, Direction.EAST);
+        final HopperBlockEntity second = hopper(1, Direction.DOWN);
+        final HopperBlockEntity outside = hopper(2, Direction.DOWN);
+        first.pipelineTarget = second;
+
+        final HopperPipeline pipeline = new HopperPipeline();
+        assertFalse(pipeline.isBatched(first, second));
+        assertTrue(pipeline.begin(first, 1L, hopper -> true));
+        assertTrue(pipeline.isBatched(first, second));
+        assertFalse(pipeline.isBatched(second, outside));
+
+        // moves call their own cancellable event again as soon as anything listens to it
+        final Listener listener = new Listener() {};
+        final RegisteredListener registered = new RegisteredListener(listener, (ignored, event) -> {}, EventPriority.NORMAL, new PaperTestPlugin("hopperpipelinetest"), false);
+        InventoryMoveItemEvent.getHandlerList().register(registered);
+        try {
+            assertFalse(pipeline.isBatched(first, second));
+        } finally {
+            HandlerList.unregisterAll(listener);
+        }
+        assertTrue(pipeline.isBatched(first, second));
+        pipeline.end();
+    }
+}
@@ -0,0 +1,80 @@
+package io.papermc.paper.block.hopper;
+
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.Direction;
+import net.minecraft.world.level.block.Blocks;
+import net.minecraft.world.level.block.ChestBlock;
+import net.minecraft.world.level.block.HopperBlock;
+import net.minecraft.world.level.block.entity.HopperBlockEntity;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.block.state.properties.ChestType;
+import org.bukkit.support.environment.AllFeatures;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@AllFeatures
+public class SleepingHoppersTest {
+
+    private static HopperBlockEntity hopper(final BlockPos pos) {
+        return new HopperBlockEntity(pos, Blocks.HOPPER.defaultBlockState().setValue(HopperBlock.FACING, Direction.DOWN));
+    }
+
+    @Test
+    public void testWakeOnNeighbourChange() {
+        final SleepingHoppers sleepingHoppers = new SleepingHoppers();
+        final BlockPos pos = new BlockPos(0, 64, 0);
+        final HopperBlockEntity hopper = hopper(pos);
+
+        sleepingHoppers.sleep(hopper);
+        assertTrue(hopper.sleeping);
+        assertEquals(1, sleepingHoppers.size());
+
+        // blocks which are not next to the hopper do not wake it
+        sleepingHoppers.wakeAround(pos.above(2));
+        sleepingHoppers.wakeAround(pos.offset(1, 1, 0));
+        assertTrue(hopper.sleeping);
+
+        // the container above the hopper changed
+        sleepingHoppers.wakeAround(pos.above());
+        assertFalse(hopper.sleeping);
+        assertEquals(0, sleepingHoppers.size());
+
+        // every neighbour and the hopper itself wake it
+        for (final BlockPos changed : new BlockPos[] {pos, pos.below(), pos.north(), pos.south(), pos.east(), pos.west()}) {
+            sleepingHoppers.sleep(hopper);
+            sleepingHoppers.wakeAround(changed);
+            assertFalse(hopper.sleeping, "not woken by a change at " + changed);
+        }
+    }
+
+    @Test
+    public void testWakeForDoubleChest() {
+        final SleepingHoppers sleepingHoppers = new SleepingHoppers();
+        final BlockPos pos = new BlockPos(0, 64, 0);
+        final HopperBlockEntity hopper = hopper(pos);
+        sleepingHoppers.sleep(hopper);
+
+        // the hopper is below the left half, the right half changed
+        final BlockState right = Blocks.CHEST.defaultBlockState()
+            .setValue(ChestBlock.FACING, Direction.NORTH)
+            .setValue(ChestBlock.TYPE, ChestType.RIGHT);
+        final BlockPos rightPos = pos.above().relative(ChestBlock.getConnectedDirection(right).getOpposite());
+        sleepingHoppers.wakeForContainer(rightPos, Blocks.CHEST.defaultBlockState());
+        assertTrue(hopper.sleeping);
+        sleepingHoppers.wakeForContainer(rightPos, right);
+        assertFalse(hopper.sleeping);
+    }
+
+    @Test
+    public void testWakeRemovesHopper() {
+        final SleepingHoppers sleepingHoppers = new SleepingHoppers();
+        final HopperBlockEntity hopper = hopper(new BlockPos(0, 64, 0));
+        sleepingHoppers.sleep(hopper);
+        sleepingHoppers.wake(hopper);
+        assertFalse(hopper.sleeping);
+        assertEquals(0, sleepingHoppers.size());
+    }
+}
@@ -0,0 +1,135 @@
+package io.papermc.paper.entity;
+
+import ca.spottedleaf.moonrise.patches.chunk_system.level.entity.EntityLookup;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Predicate;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.entity.EntitySelector;
+import net.minecraft.world.entity.LivingEntity;
+import net.minecraft.world.entity.animal.Cow;
+import net.minecraft.world.entity.decoration.ArmorStand;
+import net.minecraft.world.entity.item.ItemEntity;
+import net.minecraft.world.entity.monster.Zombie;
+import net.minecraft.world.entity.vehicle.Minecart;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.phys.AABB;
+import net.minecraft.world.scores.PlayerTeam;
+import net.minecraft.world.scores.Scoreboard;
+import net.minecraft.world.scores.Team;
+import org.bukkit.support.environment.Normal;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@Normal
+public class PushableEntitiesTest {
+
+    private static final AABB BOX = new AABB(0.0, 0.0, 0.0, 1.0, 2.0, 1.0);
+    private static final int[] LIMITS = {0, 1, 2, 4, 8, 24, 64};
+
+    @Test
+    public void testMixedEntities() {
+        final Random random = new Random(42L);
+        final Scoreboard scoreboard = new Scoreboard();
+        final List<PlayerTeam> teams = new ArrayList<>();
+        for (final Team.CollisionRule rule : Team.CollisionRule.values()) {
+            for (int i = 0; i < 2; ++i) {
+                final PlayerTeam team = scoreboard.addPlayerTeam(rule.name() + "_" + i);
+                team.setCollisionRule(rule);
+                teams.add(team);
+            }
+        }
+
+        for (int scenario = 0; scenario < 200; ++scenario) {
+            final Level level = mock(Level.class);
+            final LivingEntity pusher = entity(Zombie.class, level, randomTeam(random, teams), true, false);
+
+            // a crowded pile of pushable and non pushable entities, some riding others
+            final List<Entity> pile = new ArrayList<>();
+            for (int i = 0, len = random.nextInt(48); i < len; ++i) {
+                final PlayerTeam team = randomTeam(random, teams);
+                final boolean passenger = random.nextInt(4) == 0;
+                pile.add(switch (random.nextInt(5)) {
+                    case 0 -> entity(Zombie.class, level, team, true, passenger);
+                    case 1 -> entity(Cow.class, level, team, true, passenger);
+                    case 2 -> entity(ArmorStand.class, level, team, random.nextBoolean(), passenger);
+                    case 3 -> entity(Minecart.class, level, team, true, passenger);
+                    default -> entity(ItemEntity.class, level, team, false, passenger);
+                });
+            }
+
+            final EntityLookup lookup = mock(EntityLookup.class);
+            when(level.moonrise$getEntityLookup()).thenReturn(lookup);
+            when(lookup.getEntities(any(Entity.class), any(AABB.class), anyList(), any(), anyInt())).thenAnswer(invocation -> {
+                final List<Entity> into = invocation.getArgument(2);
+                final Predicate<? super Entity> predicate = invocation.getArgument(3);
+                final int maxCount = invocation.getArgument(4);
+                for (final Entity entity : pile) {
+                    if (into.size() >= maxCount) {
+                        return true;
+                    }
+                    if (entity != invocation.getArgument(0) && predicate.test(entity)) {
+                        into.add(entity);
+                    }
+                }
+                return false;
+            });
+            when(level.getPushableEntities(pusher, BOX)).thenAnswer(invocation -> pile.stream().filter(EntitySelector.pushableBy(pusher)).toList());
+
+            final List<Entity> expected = level.getPushableEntities(pusher, BOX);
+            for (final int maxCramming : LIMITS) {
+                for (final int maxCollisions : LIMITS) {
+                    final List<Entity> collected = PushableEntities.collect(pusher, maxCramming, maxCollisions);
+                    final String message = "scenario " + scenario + ", cramming " + maxCramming + ", collisions " + maxCollisions;
+
+                    if (collected.size() < Math.max(maxCramming, maxCollisions)) {
+                        assertEquals(expected, collected, message);
+                        continue;
+                    }
+
+                    // the entities pushed come from the front of the list
+                    assertEquals(expected.subList(0, collected.size()), collected, message);
+                    // and cramming is decided the same way
+                    if (maxCramming > 0) {
+                        assertEquals(expected.size() > maxCramming - 1, collected.size() > maxCramming - 1, message);
+                        assertEquals(countNonPassengers(expected) > maxCramming - 1, countNonPassengers(collected) > maxCramming - 1, message);
+                    }
+                }
+            }
+        }
+    }
+
+    private static PlayerTeam randomTeam(final Random random, final List<PlayerTeam> teams) {
+        final int index = random.nextInt(teams.size() + 1);
+        return index == teams.size() ? null : teams.get(index);
+    }
+
+    private static <T extends Entity> T entity(final Class<T> type, final Level level, final PlayerTeam team, final boolean collidable, final boolean passenger) {
+        final T entity = mock(type);
+        when(entity.level()).thenReturn(level);
+        when(entity.getBoundingBox()).thenReturn(BOX);
+        when(entity.getTeam()).thenReturn(team);
+        when(entity.isCollidable(anyBoolean())).thenReturn(collidable);
+        when(entity.canCollideWithBukkit(any())).thenReturn(collidable);
+        when(entity.isPassenger()).thenReturn(passenger);
+        return entity;
+    }
+
+    private static int countNonPassengers(final List<Entity> entities) {
+        int count = 0;
+        for (final Entity entity : entities) {
+            if (!entity.isPassenger()) {
+                ++count;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,55 @@
+package io.papermc.paper.entity.activation;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class AdaptiveActivationRangeTest {
+
+    @Test
+    public void testAdjustScale() {
+        // twice the budget halves the ticked area
+        assertEquals(Math.sqrt(0.5), AdaptiveActivationRange.adjustScale(1.0, 20.0, 10.0, 0.25), 1.0E-9);
+        // a spike shrinks by the maximum factor only
+        assertEquals(AdaptiveActivationRange.MAX_SHRINK_FACTOR, AdaptiveActivationRange.adjustScale(1.0, 1000.0, 10.0, 0.25), 1.0E-9);
+        // never below the minimum scale
+        assertEquals(0.25, AdaptiveActivationRange.adjustScale(0.3, 1000.0, 10.0, 0.25), 1.0E-9);
+        // close to the budget keeps the scale
+        assertEquals(0.5, AdaptiveActivationRange.adjustScale(0.5, 9.0, 10.0, 0.25), 1.0E-9);
+        // well below the budget grows, but never above the configured ranges
+        assertEquals(0.5 * AdaptiveActivationRange.GROW_FACTOR, AdaptiveActivationRange.adjustScale(0.5, 1.0, 10.0, 0.25), 1.0E-9);
+        assertEquals(1.0, AdaptiveActivationRange.adjustScale(0.99, 1.0, 10.0, 0.25), 1.0E-9);
+        // a budget of 0 shrinks to the minimum
+        double scale = 1.0;
+        for (int i = 0; i < 10; ++i) {
+            scale = AdaptiveActivationRange.adjustScale(scale, 1.0, 0.0, 0.25);
+        }
+        assertEquals(0.25, scale, 1.0E-9);
+    }
+
+    @Test
+    public void testScaleRange() {
+        assertEquals(16, AdaptiveActivationRange.scaleRange(32, 0.5, 8));
+        assertEquals(8, AdaptiveActivationRange.scaleRange(32, 0.1, 8));
+        // ranges smaller than the minimum range are not grown
+        assertEquals(4, AdaptiveActivationRange.scaleRange(4, 0.5, 8));
+        // always active types stay always active
+        assertEquals(0, AdaptiveActivationRange.scaleRange(0, 0.5, 8));
+        assertEquals(-1, AdaptiveActivationRange.scaleRange(-1, 0.5, 8));
+    }
+
+    @Test
+    public void testScaleInterval() {
+        assertEquals(2400, AdaptiveActivationRange.scaleInterval(1200, 0.5));
+        assertEquals(Integer.MAX_VALUE, AdaptiveActivationRange.scaleInterval(1200, 0.0));
+        assertEquals(-1, AdaptiveActivationRange.scaleInterval(-1, 0.5));
+    }
+
+    @Test
+    public void testCategories() {
+        assertEquals(ActivationType.values().length, ActivationCategory.values().length);
+        for (final ActivationCategory category : ActivationCategory.values()) {
+            assertEquals(category.name(), ActivationType.fromCategory(category).name());
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package io.papermc.paper.entity.tracker;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ParallelTrackerTasksTest {
+
+    @Test
+    public void testRunsEveryIndexOnce() {
+        for (final int count : new int[] {0, 1, 31, 32, 33, 1000}) {
+            final AtomicIntegerArray runs = new AtomicIntegerArray(count);
+            ParallelTrackerTasks.run(count, runs::getAndIncrement);
+            for (int i = 0; i < count; ++i) {
+                assertEquals(1, runs.get(i), "index " + i + " of " + count);
+            }
+        }
+    }
+
+    @Test
+    public void testRethrowsFailure() {
+        final AtomicIntegerArray runs = new AtomicIntegerArray(100);
+        assertThrows(IllegalStateException.class, () -> ParallelTrackerTasks.run(100, index -> {
+            if (index == 50) {
+                throw new IllegalStateException();
+            }
+            runs.getAndIncrement(index);
+        }));
+        // other batches still run
+        assertEquals(1, runs.get(99));
+    }
+}
@@ -0,0 +1,23 @@
+package io.papermc.paper.network;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class PacketFlushMetricsTest {
+
+    @Test
+    public void testAverages() {
+        final PacketFlushMetrics metrics = new PacketFlushMetrics();
+        assertEquals(0.0, metrics.averagePacketsPerFlush());
+        assertEquals(0.0, metrics.averageBytesPerFlush());
+
+        metrics.record(10, 1000L);
+        metrics.record(30, 500L);
+        assertEquals(2L, metrics.flushes());
+        assertEquals(20.0, metrics.averagePacketsPerFlush());
+        assertEquals(750.0, metrics.averageBytesPerFlush());
+        assertEquals(30, metrics.maxPacketsPerFlush());
+        assertEquals(1000L, metrics.maxBytesPerFlush());
+    }
+}
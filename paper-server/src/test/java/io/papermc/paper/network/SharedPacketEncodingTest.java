@@ -0,0 +1,35 @@
+package io.papermc.paper.network;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import java.util.Locale;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class SharedPacketEncodingTest {
+
+    @Test
+    public void testFramesPerThresholdAndLocale() {
+        final SharedPacketEncoding.Frames frames = new SharedPacketEncoding.Frames();
+        final SharedPacketEncoding.Target english = new SharedPacketEncoding.Target(frames, null, -1, Locale.ENGLISH);
+        final SharedPacketEncoding.Target german = new SharedPacketEncoding.Target(frames, null, -1, Locale.GERMAN);
+        assertNull(english.copy(UnpooledByteBufAllocator.DEFAULT));
+
+        final ByteBuf encoded = Unpooled.buffer().writeBytes(new byte[] {1, 2, 3});
+        encoded.readByte();
+        english.store(encoded);
+        // the stored frame does not depend on the buffer it was stored from
+        encoded.setByte(1, 9);
+
+        final ByteBuf copy = english.copy(UnpooledByteBufAllocator.DEFAULT);
+        assertEquals(Unpooled.wrappedBuffer(new byte[] {2, 3}), copy);
+        // every connection gets its own buffer
+        copy.setByte(0, 9);
+        assertEquals(Unpooled.wrappedBuffer(new byte[] {2, 3}), english.copy(UnpooledByteBufAllocator.DEFAULT));
+        assertNull(german.copy(UnpooledByteBufAllocator.DEFAULT));
+        assertNull(new SharedPacketEncoding.Target(frames, null, 256, Locale.ENGLISH).copy(UnpooledByteBufAllocator.DEFAULT));
+    }
+}
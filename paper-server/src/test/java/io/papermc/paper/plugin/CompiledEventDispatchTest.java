@@ -0,0 +1,110 @@
+package io.papermc.paper.plugin;
+
+import io.papermc.paper.plugin.manager.PaperPluginManagerImpl;
+import org.bukkit.Bukkit;
+import org.bukkit.event.Cancellable;
+import org.bukkit.event.Event;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.bukkit.support.environment.Normal;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+@Normal
+public class CompiledEventDispatchTest {
+
+    // well above the default compile threshold, so both the plain and the generated dispatch are exercised
+    private static final int CALLS = 1000;
+
+    @Test
+    public void test() {
+        PaperTestPlugin plugin = new PaperTestPlugin("compileddispatchtest");
+        PaperTestPlugin disabledPlugin = new PaperTestPlugin("compileddispatchtestdisabled");
+        PaperPluginManagerImpl paperPluginManager = new PaperPluginManagerImpl(Bukkit.getServer(), null, null);
+
+        Impl impl = new Impl();
+        Impl disabledImpl = new Impl();
+        paperPluginManager.registerEvents(impl, plugin);
+        paperPluginManager.registerEvents(disabledImpl, disabledPlugin);
+        disabledPlugin.setEnabled(false);
+
+        for (int i = 0; i < CALLS; ++i) {
+            TestCancellableEvent event = new TestCancellableEvent(i % 2 == 0, i == CALLS - 1);
+            paperPluginManager.callEvent(event);
+            Assertions.assertEquals(i % 2 == 0, event.isCancelled());
+        }
+
+        Assertions.assertEquals(CALLS, impl.lowest);
+        Assertions.assertEquals(CALLS / 2, impl.ignoringCancelled);
+        Assertions.assertEquals(CALLS, impl.monitor); // still called after the exception of the previous listener
+        Assertions.assertEquals(0, disabledImpl.lowest);
+
+        // re-baking the handler list must drop the generated dispatcher
+        HandlerList.unregisterAll(impl);
+        paperPluginManager.callEvent(new TestCancellableEvent(false, false));
+        Assertions.assertEquals(CALLS, impl.lowest);
+    }
+
+    public static class Impl implements Listener {
+        int lowest;
+        int ignoringCancelled;
+        int monitor;
+
+        @EventHandler(priority = EventPriority.LOWEST)
+        public void lowest(TestCancellableEvent event) {
+            this.lowest++;
+            event.setCancelled(event.cancel);
+        }
+
+        @EventHandler(ignoreCancelled = true)
+        public void ignoringCancelled(TestCancellableEvent event) {
+            this.ignoringCancelled++;
+        }
+
+        @EventHandler(priority = EventPriority.HIGH)
+        public void throwing(TestCancellableEvent event) {
+            if (event.fail) {
+                throw new IllegalStateException("Expected exception");
+            }
+        }
+
+        @EventHandler(priority = EventPriority.MONITOR)
+        public void monitor(TestCancellableEvent event) {
+            this.monitor++;
+        }
+    }
+
+    public static class TestCancellableEvent extends Event implements Cancellable {
+        private static final HandlerList HANDLER_LIST = new HandlerList();
+
+        final boolean cancel;
+        final boolean fail;
+        private boolean cancelled;
+
+        public TestCancellableEvent(final boolean cancel, final boolean fail) {
+            this.cancel = cancel;
+            this.fail = fail;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return this.cancelled;
+        }
+
+        @Override
+        public void setCancelled(final boolean cancel) {
+            this.cancelled = cancel;
+        }
+
+        @Override
+        public HandlerList getHandlers() {
+            return HANDLER_LIST;
+        }
+
+        public static HandlerList getHandlerList() {
+            return HANDLER_LIST;
+        }
+    }
+}
@@ -2,6 +2,9 @@ package io.papermc.paper.plugin;
 
 import org.bukkit.Bukkit;
 import org.bukkit.event.Event;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
 import org.bukkit.permissions.Permission;
 import org.bukkit.plugin.PluginManager;
 import org.bukkit.support.environment.Normal;
@@ -24,6 +27,19 @@ public class PluginManagerTest {
         pm.callEvent(event);
     }
 
+    @Test
+    public void testHasListeners() {
+        final PaperTestPlugin plugin = new PaperTestPlugin("haslistenerstest");
+        final Listener listener = new Listener() {};
+        assertThat(ListenedEvent.getHandlerList().hasListeners(), is(false));
+
+        pm.registerEvent(ListenedEvent.class, listener, EventPriority.NORMAL, (l, e) -> {}, plugin);
+        assertThat(ListenedEvent.getHandlerList().hasListeners(), is(true));
+
+        HandlerList.unregisterAll(listener);
+        assertThat(ListenedEvent.getHandlerList().hasListeners(), is(false));
+    }
+
     @Test
     public void testRemovePermissionByNameLower() {
         this.testRemovePermissionByName("lower");
@@ -75,4 +91,17 @@ public class PluginManagerTest {
         pm.clearPlugins();
         assertThat(pm.getPermissions(), is(empty()));
     }
+
+    public static class ListenedEvent extends Event {
+        private static final HandlerList HANDLER_LIST = new HandlerList();
+
+        @Override
+        public HandlerList getHandlers() {
+            return HANDLER_LIST;
+        }
+
+        public static HandlerList getHandlerList() {
+            return HANDLER_LIST;
+        }
+    }
 }
@@ -0,0 +1,73 @@
+package io.papermc.paper.threadedregions.scheduler;
+
+import io.papermc.paper.plugin.PaperTestPlugin;
+import java.util.ArrayList;
+import java.util.List;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.support.environment.Normal;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@Normal
+public class PluginTaskExecutorTest {
+
+    @AfterEach
+    public void reset() {
+        PluginTaskExecutor.configure(false, -1, -1);
+    }
+
+    @Test
+    public void testConcurrencyLimit() {
+        final Plugin plugin = new PaperTestPlugin("taskexecutortest");
+        final List<Runnable> started = new ArrayList<>();
+        final PluginTaskExecutor executor = new PluginTaskExecutor(started::add, "Test Thread - ");
+        final AsyncTaskMetrics metrics = PluginTaskExecutor.metrics();
+        final List<Integer> ran = new ArrayList<>();
+
+        PluginTaskExecutor.configure(false, -1, 1);
+        for (int i = 0; i < 3; ++i) {
+            final int task = i;
+            executor.execute(plugin, () -> ran.add(task));
+        }
+        assertEquals(1, started.size());
+        assertEquals(1, metrics.getRunningTasks(plugin));
+        assertEquals(2, metrics.getQueuedTasks(plugin));
+
+        // a finished task starts the next queued one
+        started.getFirst().run();
+        assertEquals(2, started.size());
+        assertEquals(1, metrics.getQueuedTasks(plugin));
+
+        // raising the limit starts the remaining tasks right away
+        PluginTaskExecutor.configure(false, -1, -1);
+        assertEquals(3, started.size());
+        assertEquals(0, metrics.getQueuedTasks(plugin));
+
+        started.get(1).run();
+        started.get(2).run();
+        assertEquals(List.of(0, 1, 2), ran);
+        assertEquals(0, metrics.getRunningTasks(plugin));
+    }
+
+    @Test
+    public void testShutdown() {
+        final Plugin plugin = new PaperTestPlugin("taskexecutorshutdowntest");
+        final List<Runnable> started = new ArrayList<>();
+        final PluginTaskExecutor executor = new PluginTaskExecutor(started::add, "Test Thread - ");
+        final AsyncTaskMetrics metrics = PluginTaskExecutor.metrics();
+
+        PluginTaskExecutor.configure(false, -1, 1);
+        executor.execute(plugin, () -> {});
+        executor.execute(plugin, () -> {});
+        assertEquals(1, metrics.getQueuedTasks(plugin));
+
+        // queued tasks of a disabled plugin are dropped and the running one does not start them
+        PluginTaskExecutor.shutdown(plugin);
+        assertEquals(0, metrics.getRunningTasks(plugin));
+        assertEquals(0, metrics.getQueuedTasks(plugin));
+        started.getFirst().run();
+        assertEquals(1, started.size());
+    }
+}
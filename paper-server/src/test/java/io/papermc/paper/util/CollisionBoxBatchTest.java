@@ -0,0 +1,63 @@
+package io.papermc.paper.util;
+
+import ca.spottedleaf.moonrise.patches.collisions.CollisionUtil;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import net.minecraft.world.phys.AABB;
+import net.minecraft.world.phys.Vec3;
+import org.bukkit.support.environment.Normal;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@Normal
+public class CollisionBoxBatchTest {
+
+    @Test
+    public void testPackedEntities() {
+        final Random random = new Random(42L);
+        for (int scenario = 0; scenario < 1000; ++scenario) {
+            // a mob farm cell: floor and walls of full blocks, filled with entities pushed into each other
+            final List<AABB> boxes = new ArrayList<>();
+            for (int x = -1; x <= 1; ++x) {
+                for (int z = -1; z <= 1; ++z) {
+                    boxes.add(new AABB(x, -1.0, z, x + 1.0, 0.0, z + 1.0));
+                    if (x != 0 || z != 0) {
+                        boxes.add(new AABB(x, 0.0, z, x + 1.0, 1.0, z + 1.0));
+                    }
+                }
+            }
+            for (int i = 0; i < 24; ++i) {
+                boxes.add(entityBox(random));
+            }
+
+            final AABB source = entityBox(random);
+            final Vec3 move = new Vec3(random.nextGaussian() * 0.3, random.nextGaussian() * 0.3, random.nextGaussian() * 0.3);
+            assertEquals(CollisionUtil.performAABBCollisions(move, source, boxes), CollisionBoxBatch.performCollisions(move, source, List.of(), boxes));
+        }
+    }
+
+    @Test
+    public void testDirectionFlip() {
+        // the source overlaps the first box by less than the collision epsilon, so moving into it turns the movement
+        // backwards, after which the second box is checked in the other direction
+        final AABB source = new AABB(0.0, 0.0, 0.0, 1.0, 1.0, 1.0);
+        final List<AABB> boxes = new ArrayList<>();
+        boxes.add(new AABB(1.0 - 5.0E-8, 0.0, 0.0, 2.0, 1.0, 1.0));
+        boxes.add(new AABB(-1.0, 0.0, 0.0, 1.0E-8, 1.0, 1.0));
+        for (int i = 0; i < CollisionBoxBatch.MIN_SIZE; ++i) {
+            boxes.add(new AABB(5.0, 5.0, 5.0, 6.0, 6.0, 6.0));
+        }
+
+        final Vec3 move = new Vec3(0.5, 0.0, 0.0);
+        assertEquals(CollisionUtil.performAABBCollisions(move, source, boxes), CollisionBoxBatch.performCollisions(move, source, List.of(), boxes));
+    }
+
+    private static AABB entityBox(final Random random) {
+        final double x = random.nextDouble() * 2.4 - 1.5;
+        final double y = random.nextDouble() * 0.5;
+        final double z = random.nextDouble() * 2.4 - 1.5;
+        return new AABB(x, y, z, x + 0.6, y + 1.8, z + 0.6);
+    }
+}
@@ -0,0 +1,37 @@
+package io.papermc.paper.world;
+
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import net.minecraft.core.SectionPos;
+import net.minecraft.world.level.ChunkPos;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SectionRelighterTest {
+
+    @Test
+    public void testChunksToRelight() {
+        final LongArrayList sections = new LongArrayList();
+        sections.add(SectionPos.asLong(0, -4, 0));
+        sections.add(SectionPos.asLong(0, 5, 0));
+        sections.add(SectionPos.asLong(1, 2, 0));
+
+        final Set<ChunkPos> chunks = SectionRelighter.chunksToRelight(sections);
+        // both changed chunks and every neighbour of them, without duplicates for sections of the same chunk
+        assertEquals(12, chunks.size());
+        for (int x = -1; x <= 2; ++x) {
+            for (int z = -1; z <= 1; ++z) {
+                assertTrue(chunks.contains(new ChunkPos(x, z)));
+            }
+        }
+
+        // chunks closer to the center of the changes are lit first
+        final List<ChunkPos> ordered = new ArrayList<>(chunks);
+        assertEquals(Set.of(new ChunkPos(0, 0), new ChunkPos(1, 0)), Set.copyOf(ordered.subList(0, 2)));
+        assertEquals(Set.of(new ChunkPos(-1, 1), new ChunkPos(-1, -1), new ChunkPos(2, 1), new ChunkPos(2, -1)), Set.copyOf(ordered.subList(8, 12)));
+    }
+}
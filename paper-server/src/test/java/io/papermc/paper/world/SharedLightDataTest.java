@@ -0,0 +1,52 @@
+package io.papermc.paper.world;
+
+import ca.spottedleaf.moonrise.patches.starlight.light.SWMRNibbleArray;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SharedLightDataTest {
+
+    @Test
+    public void testUniformNibblesShareData() {
+        final SWMRNibbleArray first = new SWMRNibbleArray();
+        final SWMRNibbleArray second = new SWMRNibbleArray();
+        first.setFull();
+        second.setFull();
+        first.updateVisible();
+        second.updateVisible();
+        assertTrue(first.isSharedVisible());
+        assertTrue(second.isSharedVisible());
+        assertEquals(0, first.getOwnedBytes());
+
+        // the first change copies the shared data
+        first.set(0, 3);
+        assertEquals(SWMRNibbleArray.ARRAY_SIZE, first.getOwnedBytes());
+        assertEquals(15, first.getVisible(0));
+        first.updateVisible();
+        assertFalse(first.isSharedVisible());
+        assertEquals(3, first.getVisible(0));
+        assertEquals(15, first.getVisible(1));
+        assertEquals(15, second.getVisible(0));
+
+        // and data which becomes uniform again is shared again
+        first.set(0, 15);
+        first.updateVisible();
+        assertTrue(first.isSharedVisible());
+        assertEquals(15, first.getVisible(0));
+    }
+
+    @Test
+    public void testLoadedNibblesShareData() {
+        final byte[] zero = new byte[SWMRNibbleArray.ARRAY_SIZE];
+        final SWMRNibbleArray nibble = new SWMRNibbleArray(zero);
+        assertTrue(nibble.isSharedVisible());
+        assertTrue(nibble.isInitialisedVisible());
+
+        final byte[] mixed = new byte[SWMRNibbleArray.ARRAY_SIZE];
+        mixed[7] = 1;
+        assertFalse(new SWMRNibbleArray(mixed).isSharedVisible());
+    }
+}
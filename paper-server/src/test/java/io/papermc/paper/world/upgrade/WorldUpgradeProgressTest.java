@@ -0,0 +1,78 @@
+package io.papermc.paper.world.upgrade;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class WorldUpgradeProgressTest {
+
+    @TempDir
+    Path folder;
+
+    @Test
+    public void testResume() throws IOException {
+        try (final WorldUpgradeProgress progress = WorldUpgradeProgress.load(this.folder, WorldUpgradeProgress.OFFLINE_FILE_NAME, "version=1")) {
+            progress.markFinished("region/r.0.0.mca");
+            progress.markFinished("poi/r.0.0.mca");
+        }
+
+        try (final WorldUpgradeProgress progress = WorldUpgradeProgress.load(this.folder, WorldUpgradeProgress.OFFLINE_FILE_NAME, "version=1")) {
+            assertEquals(2, progress.finishedCount());
+            assertTrue(progress.isFinished("region/r.0.0.mca"));
+            assertFalse(progress.isFinished("region/r.1.0.mca"));
+            progress.markFinished("region/r.1.0.mca");
+        }
+
+        // appending after resuming keeps the earlier entries
+        try (final WorldUpgradeProgress progress = WorldUpgradeProgress.load(this.folder, WorldUpgradeProgress.OFFLINE_FILE_NAME, "version=1")) {
+            assertEquals(3, progress.finishedCount());
+        }
+    }
+
+    @Test
+    public void testDifferentUpgrade() throws IOException {
+        try (final WorldUpgradeProgress progress = WorldUpgradeProgress.load(this.folder, WorldUpgradeProgress.OFFLINE_FILE_NAME, "version=1")) {
+            progress.markFinished("region/r.0.0.mca");
+        }
+
+        try (final WorldUpgradeProgress progress = WorldUpgradeProgress.load(this.folder, WorldUpgradeProgress.OFFLINE_FILE_NAME, "version=2")) {
+            assertEquals(0, progress.finishedCount());
+            progress.markFinished("region/r.1.0.mca");
+        }
+
+        // the progress of the other upgrade is replaced
+        try (final WorldUpgradeProgress progress = WorldUpgradeProgress.load(this.folder, WorldUpgradeProgress.OFFLINE_FILE_NAME, "version=2")) {
+            assertEquals(1, progress.finishedCount());
+            assertFalse(progress.isFinished("region/r.0.0.mca"));
+        }
+    }
+
+    @Test
+    public void testComplete() throws IOException {
+        final WorldUpgradeProgress progress = WorldUpgradeProgress.load(this.folder, WorldUpgradeProgress.OFFLINE_FILE_NAME, "version=1");
+        progress.markFinished("region/r.0.0.mca");
+        progress.complete();
+        assertFalse(Files.exists(this.folder.resolve(WorldUpgradeProgress.OFFLINE_FILE_NAME)));
+    }
+
+    @Test
+    public void testOnlineAndOfflineKeptApart() throws IOException {
+        try (final WorldUpgradeProgress progress = WorldUpgradeProgress.load(this.folder, WorldUpgradeProgress.OFFLINE_FILE_NAME, "version=1")) {
+            progress.markFinished("region/r.0.0.mca");
+        }
+        try (final WorldUpgradeProgress progress = WorldUpgradeProgress.load(this.folder, WorldUpgradeProgress.ONLINE_FILE_NAME, "version=1 online")) {
+            progress.markFinished("region/r.1.0.mca");
+        }
+
+        try (final WorldUpgradeProgress progress = WorldUpgradeProgress.load(this.folder, WorldUpgradeProgress.OFFLINE_FILE_NAME, "version=1")) {
+            assertEquals(1, progress.finishedCount());
+            assertTrue(progress.isFinished("region/r.0.0.mca"));
+        }
+    }
+}
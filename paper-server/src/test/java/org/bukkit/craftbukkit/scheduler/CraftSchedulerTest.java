@@ -0,0 +1,122 @@
+package org.bukkit.craftbukkit.scheduler;
+
+import io.papermc.paper.plugin.PaperTestPlugin;
+import java.util.ArrayList;
+import java.util.List;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+import org.bukkit.support.environment.Normal;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+@Normal
+public class CraftSchedulerTest {
+
+    private final Plugin plugin = new PaperTestPlugin("schedulertest");
+    private final Plugin otherPlugin = new PaperTestPlugin("schedulertestother");
+
+    @Test
+    public void testOrdering() {
+        final CraftScheduler scheduler = new CraftScheduler();
+        final List<String> order = new ArrayList<>();
+
+        scheduler.runTaskLater(this.plugin, () -> order.add("later"), 2L);
+        scheduler.runTask(this.plugin, () -> {
+            order.add("first");
+            scheduler.runTask(this.plugin, () -> order.add("nested"));
+        });
+        scheduler.runTask(this.plugin, () -> order.add("second"));
+        scheduler.runTaskTimer(this.plugin, () -> order.add("timer"), 1L, 1L);
+
+        scheduler.mainThreadHeartbeat();
+        assertEquals(List.of("first", "second", "nested"), order);
+
+        order.clear();
+        scheduler.mainThreadHeartbeat();
+        assertEquals(List.of("timer"), order);
+
+        // same tick, FIFO by creation even though the timer was re-added after running
+        order.clear();
+        scheduler.mainThreadHeartbeat();
+        assertEquals(List.of("later", "timer"), order);
+    }
+
+    @Test
+    public void testCancel() {
+        final CraftScheduler scheduler = new CraftScheduler();
+        final List<String> order = new ArrayList<>();
+
+        final BukkitTask cancelled = scheduler.runTaskTimer(this.plugin, () -> order.add("cancelled"), 0L, 1L);
+        scheduler.runTaskTimer(this.plugin, () -> order.add("plugin"), 300L, 1L);
+        scheduler.runTaskLater(this.otherPlugin, () -> order.add("other"), 300L);
+
+        scheduler.mainThreadHeartbeat();
+        assertEquals(List.of("cancelled"), order);
+
+        scheduler.cancelTask(cancelled.getTaskId());
+        scheduler.runTask(this.plugin, () -> scheduler.cancelTasks(this.plugin));
+        for (int i = 0; i < 300; ++i) {
+            scheduler.mainThreadHeartbeat();
+        }
+        assertEquals(List.of("cancelled", "other"), order);
+        assertFalse(scheduler.isQueued(cancelled.getTaskId()));
+        assertEquals(List.of(), scheduler.getPendingTasks());
+    }
+
+    @Test
+    public void testWheelLevels() {
+        final long[] delays = {1L, 255L, 256L, 300L, 16383L, 16384L, 70000L, 1L << 20, (1L << 26) + 5L};
+        final CraftTaskWheel wheel = new CraftTaskWheel(-1L);
+        wheel.advanceTo(10L);
+
+        final List<CraftTask> tasks = new ArrayList<>();
+        for (int i = 0; i < delays.length; ++i) {
+            final CraftTask task = new CraftTask(this.plugin, (Runnable) () -> {}, i + 1, CraftTask.NO_REPEATING);
+            task.setNextRun(wheel.getTick() + delays[i]);
+            wheel.add(task);
+            tasks.add(task);
+        }
+
+        final CraftTask removed = tasks.remove(3);
+        wheel.remove(removed);
+        assertNull(wheel.get(removed.getTaskId()));
+
+        for (final CraftTask task : tasks) {
+            wheel.advanceTo(task.getNextRun() - 1L);
+            assertNull(wheel.poll());
+            wheel.advanceTo(task.getNextRun());
+            assertSame(task, wheel.poll());
+            assertNull(wheel.poll());
+            wheel.release(task);
+        }
+        assertEquals(List.of(), wheel.getTasks(this.plugin));
+    }
+
+    @Test
+    public void testInternalTasksNotIndexed() {
+        final CraftTaskWheel wheel = new CraftTaskWheel(-1L);
+        wheel.advanceTo(0L);
+
+        final CraftTask pluginTask = new CraftTask(this.plugin, (Runnable) () -> {}, 1, CraftTask.NO_REPEATING);
+        final CraftTask internal1 = new CraftTask((Runnable) () -> {});
+        final CraftTask internal2 = new CraftTask((Runnable) () -> {});
+        for (final CraftTask task : List.of(pluginTask, internal1, internal2)) {
+            task.setNextRun(1L);
+            wheel.add(task);
+        }
+
+        // internal tasks share the id -1 and must neither replace each other nor be listed
+        assertNull(wheel.get(-1));
+        assertEquals(List.of(pluginTask), wheel.getTasks(null));
+
+        wheel.advanceTo(1L);
+        assertSame(pluginTask, wheel.poll());
+        assertSame(internal1, wheel.poll());
+        assertSame(internal2, wheel.poll());
+        assertNull(wheel.poll());
+    }
+}